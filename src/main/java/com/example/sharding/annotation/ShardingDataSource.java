@@ -14,14 +14,16 @@ import java.lang.annotation.*;
 public @interface ShardingDataSource {
     
     /**
-     * 数据源键值，支持SpEL表达式
-     * 默认从方法参数中获取projectId
+     * 项目ID
+     * 以#开头时作为SpEL表达式从方法参数中计算，如#order.projectId、#p0；
+     * 为空时从方法参数中获取projectId
      */
     String value() default "";
     
     /**
-     * 项目ID参数名称
-     * 当value为空时，从方法参数中按此名称获取projectId
+     * 项目ID参数名称，支持属性路径，如order.projectId
+     * 当value为空时，从方法参数中按此名称获取projectId；
+     * 找不到时依次尝试名为projectId的参数、第一个带有getProjectId()的请求对象参数
      */
     String projectIdParam() default "projectId";
 }
\ No newline at end of file
@@ -1,10 +1,13 @@
 package com.example.sharding.annotation;
 
+import com.example.sharding.metadata.TableType;
+
 import java.lang.annotation.*;
 
 /**
  * 分表注解
- * 用于标识需要进行分表操作的方法
+ * 标注在实体类上时，用于向逻辑表注册中心声明表的分片类型；
+ * 未标注的实体表视为全局表，不进行表名改写
  * 
  * @author example
  */
@@ -15,9 +18,15 @@ public @interface ShardingTable {
     
     /**
      * 原始表名
+     * 标注在实体类上且为空时，取@TableName的值
      */
     String tableName() default "";
     
+    /**
+     * 表类型
+     */
+    TableType type() default TableType.SHARDED;
+    
     /**
      * 表后缀键值，支持SpEL表达式
      * 默认从方法参数中获取projectId
@@ -29,4 +38,4 @@ public @interface ShardingTable {
      * 当value为空时，从方法参数中按此名称获取projectId
      */
     String projectIdParam() default "projectId";
-}
\ No newline at end of file
+}
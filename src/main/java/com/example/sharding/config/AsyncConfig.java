@@ -1,6 +1,8 @@
 package com.example.sharding.config;
 
-import com.example.sharding.context.DatabaseContext;
+import com.example.sharding.context.ShardingContext;
+import com.example.sharding.context.ShardingRoute;
+import com.example.sharding.datasource.ShardBulkhead;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,7 +14,7 @@ import java.util.concurrent.Executor;
 
 /**
  * 异步配置
- * 支持跨线程上下文传递
+ * 支持跨线程上下文传递，按分片限制异步任务数量
  * 
  * @author example
  */
@@ -25,7 +27,7 @@ public class AsyncConfig {
      * 异步任务执行器
      */
     @Bean("taskExecutor")
-    public Executor taskExecutor() {
+    public Executor taskExecutor(ShardBulkhead shardBulkhead) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(10);
         executor.setMaxPoolSize(20);
@@ -35,7 +37,7 @@ public class AsyncConfig {
         executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());
         
         // 设置任务装饰器，用于上下文传递
-        executor.setTaskDecorator(new ContextCopyingDecorator());
+        executor.setTaskDecorator(new ContextCopyingDecorator(shardBulkhead));
         
         executor.initialize();
         return executor;
@@ -47,25 +49,34 @@ public class AsyncConfig {
      */
     public static class ContextCopyingDecorator implements TaskDecorator {
         
+        private final ShardBulkhead shardBulkhead;
+        
+        public ContextCopyingDecorator(ShardBulkhead shardBulkhead) {
+            this.shardBulkhead = shardBulkhead;
+        }
+        
         @Override
         public Runnable decorate(Runnable runnable) {
-            // 获取当前线程的上下文
-            DatabaseContext.ContextInfo contextInfo = DatabaseContext.getContextInfo();
+            // 获取当前线程的路由（不可变对象，可直接跨线程共享）
+            ShardingRoute route = ShardingContext.current();
+            if (route == null) {
+                return runnable;
+            }
             
-            return () -> {
+            // 按分片限制同时提交的异步任务，超出时在提交线程直接拒绝
+            return shardBulkhead.guardAsync(route.getDataSourceKey(), () -> {
+                // 在执行线程中进入路由范围（CallerRunsPolicy下可能就是提交线程本身）
+                ShardingRoute previous = ShardingContext.push(route);
+                log.debug("异步线程设置上下文: {}", route);
                 try {
-                    // 在异步线程中设置上下文
-                    DatabaseContext.setContextInfo(contextInfo);
-                    log.debug("异步线程设置上下文: {}", contextInfo);
-                    
                     // 执行原始任务
                     runnable.run();
                 } finally {
-                    // 清理上下文
-                    DatabaseContext.clear();
+                    // 恢复执行线程原有的上下文
+                    ShardingContext.pop(previous);
                     log.debug("异步线程清理上下文");
                 }
-            };
+            });
         }
     }
 }
\ No newline at end of file
@@ -1,21 +1,35 @@
 package com.example.sharding.config;
 
+import com.alibaba.druid.pool.DataSourceClosedException;
 import com.alibaba.druid.pool.DruidDataSource;
-import com.example.sharding.context.DatabaseContext;
+import com.example.sharding.context.ReadWriteContext;
+import com.example.sharding.context.ShardingContext;
+import com.example.sharding.context.ShardingRoute;
+import com.example.sharding.datasource.DataSourceRegistry;
+import com.example.sharding.datasource.ReplicaSet;
+import com.example.sharding.datasource.ShardBulkhead;
+import com.example.sharding.datasource.ShardHealthTracker;
+import com.example.sharding.interceptor.ReadWriteSplitInterceptor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.HashMap;
-import java.util.Map;
 
 /**
  * 动态数据源配置
+ * 默认数据源固定创建，分片数据源由DataSourceRegistry按需创建
  * 
  * @author example
  */
@@ -33,30 +47,15 @@ public class DataSourceConfig {
     }
     
     /**
-     * 数据库001数据源
+     * 分片数据源注册中心，连接池按需创建
      */
-    @Bean("database001DataSource")
-    @ConfigurationProperties(prefix = "spring.datasource.dynamic.database-001")
-    public DataSource database001DataSource() {
-        return new DruidDataSource();
-    }
-    
-    /**
-     * 数据库002数据源
-     */
-    @Bean("database002DataSource")
-    @ConfigurationProperties(prefix = "spring.datasource.dynamic.database-002")
-    public DataSource database002DataSource() {
-        return new DruidDataSource();
-    }
-    
-    /**
-     * 数据库003数据源
-     */
-    @Bean("database003DataSource")
-    @ConfigurationProperties(prefix = "spring.datasource.dynamic.database-003")
-    public DataSource database003DataSource() {
-        return new DruidDataSource();
+    @Bean
+    public DataSourceRegistry dataSourceRegistry(Environment environment,
+                                                 @Value("${sharding.datasource.idle-timeout:1800}") long idleTimeout,
+                                                 @Value("${sharding.datasource.mode:pool-per-database}") String mode,
+                                                 ShardHealthTracker shardHealthTracker) {
+        return new DataSourceRegistry(environment, defaultDataSource(), idleTimeout, "schema-switching".equals(mode),
+                shardHealthTracker);
     }
     
     /**
@@ -64,21 +63,35 @@ public class DataSourceConfig {
      */
     @Bean
     @Primary
-    public DataSource dynamicDataSource() {
-        DynamicRoutingDataSource routingDataSource = new DynamicRoutingDataSource();
-        
-        Map<Object, Object> dataSourceMap = new HashMap<>();
-        dataSourceMap.put("default", defaultDataSource());
-        dataSourceMap.put("database-001", database001DataSource());
-        dataSourceMap.put("database-002", database002DataSource());
-        dataSourceMap.put("database-003", database003DataSource());
+    public DataSource dynamicDataSource(DataSourceRegistry dataSourceRegistry, ShardBulkhead shardBulkhead,
+                                        ShardHealthTracker shardHealthTracker,
+                                        @Value("${sharding.read-write-split.enabled:false}") boolean readWriteSplit) {
+        DynamicRoutingDataSource routingDataSource = new DynamicRoutingDataSource(dataSourceRegistry, shardBulkhead,
+                shardHealthTracker, readWriteSplit);
         
-        // 设置数据源映射
-        routingDataSource.setTargetDataSources(dataSourceMap);
-        // 设置默认数据源
+        // 目标数据源由注册中心按需提供，这里只设置默认数据源
+        routingDataSource.setTargetDataSources(new HashMap<>());
         routingDataSource.setDefaultTargetDataSource(defaultDataSource());
+        routingDataSource.afterPropertiesSet();
         
-        return routingDataSource;
+        if (!readWriteSplit) {
+            return routingDataSource;
+        }
+        // 延迟到执行第一条语句时才获取连接，此时事务的只读属性和语句类型都已确定
+        LazyConnectionDataSourceProxy lazyDataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        // 使用MySQL默认值，避免启动后首次获取连接时探测默认属性
+        lazyDataSource.setDefaultAutoCommit(true);
+        lazyDataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        return lazyDataSource;
+    }
+    
+    /**
+     * 读写分离拦截器，标记事务之外的只读查询
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "sharding.read-write-split", name = "enabled", havingValue = "true")
+    public ReadWriteSplitInterceptor readWriteSplitInterceptor() {
+        return new ReadWriteSplitInterceptor();
     }
     
     /**
@@ -86,11 +99,99 @@ public class DataSourceConfig {
      */
     public static class DynamicRoutingDataSource extends AbstractRoutingDataSource {
         
+        private final DataSourceRegistry dataSourceRegistry;
+        
+        private final ShardBulkhead shardBulkhead;
+        
+        private final ShardHealthTracker shardHealthTracker;
+        
+        private final boolean readWriteSplit;
+        
+        public DynamicRoutingDataSource(DataSourceRegistry dataSourceRegistry, ShardBulkhead shardBulkhead,
+                                        ShardHealthTracker shardHealthTracker, boolean readWriteSplit) {
+            this.dataSourceRegistry = dataSourceRegistry;
+            this.shardBulkhead = shardBulkhead;
+            this.shardHealthTracker = shardHealthTracker;
+            this.readWriteSplit = readWriteSplit;
+        }
+        
         @Override
         protected Object determineCurrentLookupKey() {
-            String dataSourceKey = DatabaseContext.getDataSourceKey();
+            String dataSourceKey = ShardingContext.getDataSourceKey();
             log.debug("当前数据源键: {}", dataSourceKey);
-            return dataSourceKey != null ? dataSourceKey : "default";
+            return dataSourceKey != null ? dataSourceKey : ShardingRoute.DEFAULT_DATA_SOURCE_KEY;
+        }
+        
+        @Override
+        protected DataSource determineTargetDataSource() {
+            return dataSourceRegistry.getDataSource((String) determineCurrentLookupKey());
+        }
+        
+        @Override
+        public Connection getConnection() throws SQLException {
+            String key = (String) determineCurrentLookupKey();
+            return obtainConnection(key, () -> connect(key, DataSource::getConnection));
+        }
+        
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            String key = (String) determineCurrentLookupKey();
+            return obtainConnection(key, () -> connect(key, dataSource -> dataSource.getConnection(username, password)));
+        }
+        
+        /**
+         * 从库获取连接失败时该从库已被摘除，本次改从主库获取，失败不计入主库熔断
+         */
+        private Connection connect(String key, ConnectionOpener opener) throws SQLException {
+            DataSource target = targetDataSource(key);
+            if (!(target instanceof ReplicaSet.Replica)) {
+                return opener.open(target);
+            }
+            try {
+                return opener.open(target);
+            } catch (SQLException e) {
+                log.warn("从库[{}]获取连接失败，改为读主库: {}", ((ReplicaSet.Replica) target).getName(), e.getMessage());
+                return opener.open(dataSourceRegistry.getDataSource(key));
+            }
+        }
+        
+        /**
+         * 只读事务和事务之外的查询走从库，其余走主库
+         */
+        private DataSource targetDataSource(String key) {
+            if (!readWriteSplit) {
+                return dataSourceRegistry.getDataSource(key);
+            }
+            boolean read = TransactionSynchronizationManager.isActualTransactionActive()
+                    ? TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                    : ReadWriteContext.isRead();
+            return read ? dataSourceRegistry.getReadDataSource(key) : dataSourceRegistry.getDataSource(key);
+        }
+        
+        /**
+         * 熔断检查 -> 舱壁许可 -> 从连接池获取连接，获取失败计入分片健康状态
+         */
+        private Connection obtainConnection(String key, ShardBulkhead.ConnectionSupplier supplier) throws SQLException {
+            shardHealthTracker.checkAvailable(key);
+            return shardBulkhead.guard(key, () -> {
+                try {
+                    try {
+                        return supplier.get();
+                    } catch (DataSourceClosedException e) {
+                        // 连接池恰好因空闲被关闭，重新获取会按需创建新的连接池
+                        return supplier.get();
+                    }
+                } catch (SQLException e) {
+                    shardHealthTracker.onFailure(key, e);
+                    throw e;
+                }
+            });
+        }
+        
+        @FunctionalInterface
+        private interface ConnectionOpener {
+            
+            Connection open(DataSource dataSource) throws SQLException;
         }
     }
 }
\ No newline at end of file
@@ -5,6 +5,8 @@ import com.baomidou.mybatisplus.core.handlers.MetaObjectHandler;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
 import com.example.sharding.interceptor.DynamicTableInterceptor;
+import com.example.sharding.interceptor.QueryTimeoutInterceptor;
+import com.example.sharding.metadata.LogicalTableRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.ibatis.reflection.MetaObject;
 import org.springframework.context.annotation.Bean;
@@ -25,11 +27,11 @@ public class MybatisPlusConfig {
      * MyBatis Plus拦截器
      */
     @Bean
-    public MybatisPlusInterceptor mybatisPlusInterceptor() {
+    public MybatisPlusInterceptor mybatisPlusInterceptor(LogicalTableRegistry logicalTableRegistry) {
         MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
         
         // 动态表名拦截器（必须放在第一位）
-        interceptor.addInnerInterceptor(new DynamicTableInterceptor());
+        interceptor.addInnerInterceptor(new DynamicTableInterceptor(logicalTableRegistry));
         
         // 分页拦截器
         interceptor.addInnerInterceptor(new PaginationInnerInterceptor(DbType.MYSQL));
@@ -37,6 +39,14 @@ public class MybatisPlusConfig {
         return interceptor;
     }
     
+    /**
+     * 语句超时拦截器，按当前线程的截止时间设置查询超时（跨分片查询）
+     */
+    @Bean
+    public QueryTimeoutInterceptor queryTimeoutInterceptor() {
+        return new QueryTimeoutInterceptor();
+    }
+    
     /**
      * 自动填充处理器
      */
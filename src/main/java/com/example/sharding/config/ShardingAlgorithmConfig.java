@@ -0,0 +1,48 @@
+package com.example.sharding.config;
+
+import com.example.sharding.strategy.algorithm.ConsistentHashShardingAlgorithm;
+import com.example.sharding.strategy.algorithm.ModShardingAlgorithm;
+import com.example.sharding.strategy.algorithm.RangeShardingAlgorithm;
+import com.example.sharding.strategy.algorithm.ShardingAlgorithm;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 分库算法配置
+ * sharding.algorithm.type不为none时创建分库算法，分片配置表中的记录作为显式覆盖
+ * 
+ * @author example
+ */
+@Slf4j
+@Configuration
+@ConditionalOnExpression("'${sharding.algorithm.type:none}' != 'none'")
+public class ShardingAlgorithmConfig {
+    
+    @Bean
+    public ShardingAlgorithm shardingAlgorithm(ShardingAlgorithmProperties properties) {
+        ShardingAlgorithm algorithm;
+        switch (properties.getType()) {
+            case "mod":
+                algorithm = new ModShardingAlgorithm(properties.getDatabases());
+                break;
+            case "range":
+                Map<String, String> ranges = new LinkedHashMap<>();
+                properties.getRanges().forEach(range -> ranges.put(range.getStart(), range.getDatabase()));
+                algorithm = new RangeShardingAlgorithm(ranges);
+                break;
+            case "consistent-hash":
+                algorithm = new ConsistentHashShardingAlgorithm(properties.getDatabases(), properties.getVirtualNodes());
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的分库算法: " + properties.getType());
+        }
+        
+        log.info("启用分库算法: {}, 数据库: {}", properties.getType(), properties.getDatabases());
+        return algorithm;
+    }
+}
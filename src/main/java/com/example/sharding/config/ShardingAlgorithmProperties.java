@@ -0,0 +1,61 @@
+package com.example.sharding.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分库算法配置
+ * 
+ * @author example
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sharding.algorithm")
+public class ShardingAlgorithmProperties {
+    
+    /**
+     * 算法类型：none（仅使用分片配置表）、mod、range、consistent-hash
+     */
+    private String type = "none";
+    
+    /**
+     * 参与分库的数据库后缀，如001、002、003
+     */
+    private List<String> databases = new ArrayList<>();
+    
+    /**
+     * 一致性哈希每个数据库的虚拟节点数
+     */
+    private int virtualNodes = 160;
+    
+    /**
+     * 范围分库的区间配置
+     */
+    private List<Range> ranges = new ArrayList<>();
+    
+    /**
+     * 表后缀生成方式：project（按项目ID生成，每个项目独立分表）、database（与数据库后缀相同）
+     */
+    private String tableSuffix = "project";
+    
+    /**
+     * 范围区间
+     */
+    @Data
+    public static class Range {
+        
+        /**
+         * 区间起始项目ID（包含），首个区间为空字符串
+         */
+        private String start = "";
+        
+        /**
+         * 数据库后缀
+         */
+        private String database;
+    }
+}
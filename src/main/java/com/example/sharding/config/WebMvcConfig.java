@@ -0,0 +1,34 @@
+package com.example.sharding.config;
+
+import com.example.sharding.interceptor.ShardingRouteInterceptor;
+import com.example.sharding.strategy.ShardingStrategy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Web MVC配置
+ * 注册请求级分片路由拦截器
+ * 
+ * @author example
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "sharding.request-routing", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class WebMvcConfig implements WebMvcConfigurer {
+    
+    @Autowired
+    private ShardingStrategy shardingStrategy;
+    
+    @Value("${sharding.request-routing.header:X-Project-Id}")
+    private String headerName;
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ShardingRouteInterceptor(shardingStrategy, headerName))
+                .addPathPatterns("/api/**")
+                .excludePathPatterns("/api/sharding-config/**");
+    }
+}
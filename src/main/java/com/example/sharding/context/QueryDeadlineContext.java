@@ -0,0 +1,46 @@
+package com.example.sharding.context;
+
+/**
+ * 查询截止时间上下文
+ * 标记当前线程上的语句须在何时之前完成，供语句超时拦截器设置JDBC查询超时
+ *
+ * @author example
+ */
+public final class QueryDeadlineContext {
+
+    private static final ThreadLocal<Long> DEADLINE_HOLDER = new ThreadLocal<>();
+
+    private QueryDeadlineContext() {
+    }
+
+    /**
+     * 进入截止时间范围
+     *
+     * @param deadline 截止时间(System.currentTimeMillis())
+     * @return 外层截止时间，退出时需传给{@link #exit(Long)}
+     */
+    public static Long enter(long deadline) {
+        Long previous = DEADLINE_HOLDER.get();
+        DEADLINE_HOLDER.set(previous == null ? deadline : Math.min(previous, deadline));
+        return previous;
+    }
+
+    /**
+     * 退出截止时间范围，恢复外层截止时间
+     */
+    public static void exit(Long previous) {
+        if (previous == null) {
+            DEADLINE_HOLDER.remove();
+        } else {
+            DEADLINE_HOLDER.set(previous);
+        }
+    }
+
+    /**
+     * 距截止时间的剩余毫秒数，未设置截止时间时返回null
+     */
+    public static Long remainingMillis() {
+        Long deadline = DEADLINE_HOLDER.get();
+        return deadline == null ? null : deadline - System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.sharding.context;
+
+/**
+ * 读写分离上下文
+ * 标记当前线程正在执行的MyBatis语句是否为只读查询，供数据源路由在事务之外选择从库
+ *
+ * @author example
+ */
+public final class ReadWriteContext {
+
+    private static final ThreadLocal<Boolean> READ_HOLDER = new ThreadLocal<>();
+
+    private ReadWriteContext() {
+    }
+
+    /**
+     * 进入语句范围
+     *
+     * @param read 是否为只读查询
+     * @return 外层标记，退出时需传给{@link #exit(Boolean)}
+     */
+    public static Boolean enter(boolean read) {
+        Boolean previous = READ_HOLDER.get();
+        READ_HOLDER.set(read);
+        return previous;
+    }
+
+    /**
+     * 退出语句范围，恢复外层标记
+     */
+    public static void exit(Boolean previous) {
+        if (previous == null) {
+            READ_HOLDER.remove();
+        } else {
+            READ_HOLDER.set(previous);
+        }
+    }
+
+    /**
+     * 当前语句是否为只读查询
+     */
+    public static boolean isRead() {
+        return Boolean.TRUE.equals(READ_HOLDER.get());
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.sharding.context;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 分片上下文管理
+ * 使用单个ThreadLocal保存当前线程的不可变分片路由
+ * 
+ * <p>嵌套调用通过push/pop切换路由，退出时恢复外层路由；最外层退出后清空ThreadLocal，
+ * 避免线程池中的线程把路由带到下一个请求：
+ * <pre>
+ * ShardingRoute previous = ShardingContext.push(route);
+ * try {
+ *     ...
+ * } finally {
+ *     ShardingContext.pop(previous);
+ * }
+ * </pre>
+ * 
+ * @author example
+ */
+@Slf4j
+public final class ShardingContext {
+    
+    /**
+     * 当前线程的分片路由
+     */
+    private static final ThreadLocal<ShardingRoute> ROUTE_HOLDER = new ThreadLocal<>();
+    
+    private ShardingContext() {
+    }
+    
+    /**
+     * 进入新的路由范围
+     * 
+     * @param route 新路由
+     * @return 外层路由，退出时需传给{@link #pop(ShardingRoute)}
+     */
+    public static ShardingRoute push(ShardingRoute route) {
+        ShardingRoute previous = ROUTE_HOLDER.get();
+        ROUTE_HOLDER.set(route);
+        return previous;
+    }
+    
+    /**
+     * 退出路由范围，恢复外层路由
+     * 
+     * @param previous {@link #push(ShardingRoute)}返回的外层路由
+     */
+    public static void pop(ShardingRoute previous) {
+        if (previous == null) {
+            ROUTE_HOLDER.remove();
+        } else {
+            ROUTE_HOLDER.set(previous);
+        }
+    }
+    
+    /**
+     * 获取当前路由
+     */
+    public static ShardingRoute current() {
+        return ROUTE_HOLDER.get();
+    }
+    
+    /**
+     * 获取项目ID
+     */
+    public static String getProjectId() {
+        ShardingRoute route = ROUTE_HOLDER.get();
+        return route == null ? null : route.getProjectId();
+    }
+    
+    /**
+     * 获取数据源键
+     */
+    public static String getDataSourceKey() {
+        ShardingRoute route = ROUTE_HOLDER.get();
+        return route == null ? null : route.getDataSourceKey();
+    }
+    
+    /**
+     * 获取表后缀
+     */
+    public static String getTableSuffix() {
+        ShardingRoute route = ROUTE_HOLDER.get();
+        return route == null ? null : route.getTableSuffix();
+    }
+    
+    /**
+     * 直接设置当前路由（不保留外层路由，仅用于手动管理上下文）
+     */
+    public static void set(ShardingRoute route) {
+        log.debug("设置分片路由: {}", route);
+        ROUTE_HOLDER.set(route);
+    }
+    
+    /**
+     * 清空当前线程的路由
+     */
+    public static void clear() {
+        log.debug("清空分片路由");
+        ROUTE_HOLDER.remove();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.sharding.context;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 分片路由
+ * 不可变对象，包含数据源键、表后缀以及各逻辑表对应的实际表名，
+ * 由分片策略按项目预先计算并缓存，可在线程间安全共享
+ * 
+ * @author example
+ */
+@Getter
+@ToString
+public final class ShardingRoute {
+    
+    /**
+     * 默认数据源键
+     */
+    public static final String DEFAULT_DATA_SOURCE_KEY = "default";
+    
+    /**
+     * 数据源路由驻留表（不区分项目，仅切换数据源）
+     * key: 数据源键
+     */
+    private static final Map<String, ShardingRoute> DATA_SOURCE_ROUTES = new ConcurrentHashMap<>();
+    
+    /**
+     * 项目ID
+     */
+    private final String projectId;
+    
+    /**
+     * 数据源键
+     */
+    private final String dataSourceKey;
+    
+    /**
+     * 表后缀
+     */
+    private final String tableSuffix;
+    
+    /**
+     * 逻辑表名 -> 实际表名
+     */
+    @ToString.Exclude
+    private final Map<String, String> actualTableNames;
+    
+    private ShardingRoute(String projectId, String dataSourceKey, String tableSuffix, Collection<String> logicalTables) {
+        this.projectId = projectId;
+        this.dataSourceKey = dataSourceKey;
+        this.tableSuffix = tableSuffix == null ? "" : tableSuffix;
+        
+        Map<String, String> names = new HashMap<>(logicalTables.size() * 2);
+        for (String logicalTable : logicalTables) {
+            names.put(logicalTable, buildActualTableName(logicalTable, this.tableSuffix));
+        }
+        this.actualTableNames = Collections.unmodifiableMap(names);
+    }
+    
+    /**
+     * 创建项目路由，预先计算各逻辑表的实际表名
+     * 
+     * @param projectId 项目ID
+     * @param dataSourceKey 数据源键
+     * @param tableSuffix 表后缀
+     * @param logicalTables 分片逻辑表
+     */
+    public static ShardingRoute of(String projectId, String dataSourceKey, String tableSuffix, Collection<String> logicalTables) {
+        return new ShardingRoute(projectId, dataSourceKey, tableSuffix, logicalTables);
+    }
+    
+    /**
+     * 获取仅指定数据源、不带表后缀的路由
+     * 用于建表、元数据查询等需要临时切换数据源的场景
+     */
+    public static ShardingRoute ofDataSource(String dataSourceKey) {
+        return DATA_SOURCE_ROUTES.computeIfAbsent(dataSourceKey, key -> new ShardingRoute(null, key, "", Collections.emptySet()));
+    }
+    
+    /**
+     * 根据原始表名生成实际表名
+     */
+    public String getActualTableName(String originalTableName) {
+        String actualTableName = actualTableNames.get(originalTableName);
+        return actualTableName != null ? actualTableName : buildActualTableName(originalTableName, tableSuffix);
+    }
+    
+    /**
+     * 根据原始表名和后缀生成实际表名
+     */
+    public static String buildActualTableName(String originalTableName, String tableSuffix) {
+        if (StrUtil.isBlank(tableSuffix)) {
+            return originalTableName;
+        }
+        return originalTableName + "_" + tableSuffix;
+    }
+}
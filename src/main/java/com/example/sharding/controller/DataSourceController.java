@@ -0,0 +1,93 @@
+package com.example.sharding.controller;
+
+import com.example.sharding.datasource.DataSourceRegistry;
+import com.example.sharding.datasource.PoolBudgetManager;
+import com.example.sharding.datasource.ShardBulkhead;
+import com.example.sharding.datasource.ShardHealthTracker;
+import com.example.sharding.datasource.ShardWarmup;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据源管理控制器
+ * 
+ * @author example
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/sharding-config/datasource")
+public class DataSourceController {
+    
+    @Autowired(required = false)
+    private PoolBudgetManager poolBudgetManager;
+    
+    @Autowired
+    private ShardBulkhead shardBulkhead;
+    
+    @Autowired
+    private ShardHealthTracker shardHealthTracker;
+    
+    @Autowired
+    private DataSourceRegistry dataSourceRegistry;
+    
+    @Autowired(required = false)
+    private ShardWarmup shardWarmup;
+    
+    /**
+     * 查询连接池预算调整结果
+     */
+    @GetMapping("/budget")
+    public ResponseEntity<List<Map<String, Object>>> budget() {
+        if (poolBudgetManager == null) {
+            return ResponseEntity.ok(Collections.emptyList());
+        }
+        return ResponseEntity.ok(poolBudgetManager.getDecisions());
+    }
+    
+    /**
+     * 查询各分片的并发限制
+     */
+    @GetMapping("/bulkhead")
+    public ResponseEntity<Map<String, Map<String, Object>>> bulkhead() {
+        return ResponseEntity.ok(shardBulkhead.getStats());
+    }
+    
+    /**
+     * 查询各分片的健康和熔断状态
+     */
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, Map<String, Object>>> health() {
+        return ResponseEntity.ok(shardHealthTracker.getStates());
+    }
+    
+    /**
+     * 查询各分片从库状态
+     */
+    @GetMapping("/replicas")
+    public ResponseEntity<Map<String, Object>> replicas() {
+        return ResponseEntity.ok(dataSourceRegistry.getReplicaStats());
+    }
+    
+    /**
+     * 就绪检查，分片预热完成前返回503，可作为负载均衡的就绪探针
+     */
+    @GetMapping("/readiness")
+    public ResponseEntity<Map<String, String>> readiness() {
+        if (shardWarmup == null) {
+            return ResponseEntity.ok(Collections.emptyMap());
+        }
+        if (!shardWarmup.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(shardWarmup.getResults());
+        }
+        return ResponseEntity.ok(shardWarmup.getResults());
+    }
+}
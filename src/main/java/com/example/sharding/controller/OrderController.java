@@ -116,6 +116,26 @@ public class OrderController {
         return orderService.getOrderDetailByStatusAsync(projectId, status);
     }
 
+    /**
+     * 多表联查：跨项目根据状态查询订单详情，不指定项目时查询所有分片
+     */
+    @GetMapping("/detail/status/all/{status}")
+    public List<OrderDetailVO> getOrderDetailByStatusAcrossProjects(@PathVariable Integer status,
+                                                                    @RequestParam(required = false) List<String> projectIds) {
+        return orderService.getOrderDetailByStatusAcrossProjects(projectIds, status);
+    }
+
+    /**
+     * 多表联查：跨项目根据状态分页查询订单详情，不指定项目时查询所有分片
+     */
+    @GetMapping("/detail/status/all/{status}/page")
+    public List<OrderDetailVO> pageOrderDetailByStatusAcrossProjects(@PathVariable Integer status,
+                                                                     @RequestParam(required = false) List<String> projectIds,
+                                                                     @RequestParam(defaultValue = "0") int offset,
+                                                                     @RequestParam(defaultValue = "20") int limit) {
+        return orderService.pageOrderDetailByStatusAcrossProjects(projectIds, status, offset, limit);
+    }
+
     /**
      * 批量更新订单状态（同步）
      */
@@ -0,0 +1,96 @@
+package com.example.sharding.controller;
+
+import com.example.sharding.schema.SchemaDriftDetector;
+import com.example.sharding.schema.SchemaMigrationEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 分片表结构管理控制器
+ *
+ * @author example
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/sharding-config/schema")
+public class SchemaController {
+
+    @Autowired
+    private SchemaMigrationEngine schemaMigrationEngine;
+
+    @Autowired(required = false)
+    private SchemaDriftDetector schemaDriftDetector;
+
+    /**
+     * 提交结构变更，相同变更ID重新提交时继续未完成的表
+     */
+    @PostMapping("/migrations")
+    public ResponseEntity<String> submitMigration(@RequestParam String migrationId,
+                                                  @RequestParam String logicalTable,
+                                                  @RequestParam String alter) {
+        try {
+            log.info("提交结构变更 - 变更ID: {}, 逻辑表: {}, 语句: {}", migrationId, logicalTable, alter);
+            schemaMigrationEngine.submit(migrationId, logicalTable, alter);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body("结构变更已提交");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (Exception e) {
+            log.error("提交结构变更失败", e);
+            return ResponseEntity.internalServerError().body("提交失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查询结构变更进度
+     */
+    @GetMapping("/migrations/{migrationId}")
+    public ResponseEntity<Map<String, Object>> getMigration(@PathVariable String migrationId) {
+        try {
+            return ResponseEntity.ok(schemaMigrationEngine.getProgress(migrationId));
+        } catch (Exception e) {
+            log.error("查询结构变更进度失败", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 查询最近一次表结构漂移检查结果
+     */
+    @GetMapping("/drift")
+    public ResponseEntity<Map<String, Object>> getDrift() {
+        if (schemaDriftDetector == null) {
+            return ResponseEntity.ok(Collections.emptyMap());
+        }
+        return ResponseEntity.ok(schemaDriftDetector.getReport());
+    }
+
+    /**
+     * 立即执行表结构漂移检查
+     */
+    @PostMapping("/drift/check")
+    public ResponseEntity<Map<String, Object>> checkDrift() {
+        if (schemaDriftDetector == null) {
+            return ResponseEntity.ok(Collections.emptyMap());
+        }
+        try {
+            schemaDriftDetector.check();
+            return ResponseEntity.ok(schemaDriftDetector.getReport());
+        } catch (Exception e) {
+            log.error("表结构漂移检查失败", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -2,12 +2,15 @@ package com.example.sharding.controller;
 
 import com.example.sharding.entity.ShardingConfig;
 import com.example.sharding.service.ShardingConfigService;
+import com.example.sharding.service.TableAutoCreateService;
+import com.example.sharding.strategy.ProjectShardingStrategy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 分片配置控制器
@@ -22,6 +25,12 @@ public class ShardingConfigController {
     @Autowired
     private ShardingConfigService shardingConfigService;
     
+    @Autowired
+    private ProjectShardingStrategy projectShardingStrategy;
+    
+    @Autowired
+    private TableAutoCreateService tableAutoCreateService;
+    
     /**
      * 创建分片配置
      */
@@ -36,7 +45,7 @@ public class ShardingConfigController {
             boolean result = shardingConfigService.createConfig(projectId, databaseSuffix, tableSuffix);
             
             if (result) {
-                return ResponseEntity.ok("分片配置创建成功");
+                return ResponseEntity.ok("分片配置创建成功，分片表创建中");
             } else {
                 return ResponseEntity.badRequest().body("分片配置创建失败");
             }
@@ -66,6 +75,14 @@ public class ShardingConfigController {
         }
     }
     
+    /**
+     * 查询项目分片表的创建状态
+     */
+    @GetMapping("/{projectId}/provision")
+    public ResponseEntity<Map<String, TableAutoCreateService.TableStatus>> getProvisionStatus(@PathVariable String projectId) {
+        return ResponseEntity.ok(tableAutoCreateService.getProvisionStatus(projectId));
+    }
+    
     /**
      * 查询所有分片配置
      */
@@ -96,6 +113,8 @@ public class ShardingConfigController {
             boolean result = shardingConfigService.updateById(config);
             
             if (result) {
+                // 本节点立即生效，其他节点由变更监听在轮询周期内更新
+                projectShardingStrategy.applyConfigChange(shardingConfigService.getById(id));
                 return ResponseEntity.ok("分片配置更新成功");
             } else {
                 return ResponseEntity.badRequest().body("分片配置更新失败");
@@ -114,9 +133,11 @@ public class ShardingConfigController {
         try {
             log.info("删除分片配置 - ID: {}", id);
             
+            ShardingConfig config = shardingConfigService.getById(id);
             boolean result = shardingConfigService.removeById(id);
             
             if (result) {
+                projectShardingStrategy.applyConfigChange(config.setDeleted(1));
                 return ResponseEntity.ok("分片配置删除成功");
             } else {
                 return ResponseEntity.badRequest().body("分片配置删除失败");
@@ -126,4 +147,12 @@ public class ShardingConfigController {
             return ResponseEntity.internalServerError().body("删除失败: " + e.getMessage());
         }
     }
+    
+    /**
+     * 查询路由缓存统计
+     */
+    @GetMapping("/route-cache/stats")
+    public ResponseEntity<Map<String, Object>> routeCacheStats() {
+        return ResponseEntity.ok(projectShardingStrategy.getRouteCacheStats());
+    }
 }
\ No newline at end of file
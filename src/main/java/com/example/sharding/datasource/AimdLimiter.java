@@ -0,0 +1,76 @@
+package com.example.sharding.datasource;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD自适应并发限制
+ * 请求在阈值内完成时限制加性增长（每个限制窗口约+1），超时或失败时乘性下降，
+ * 超出当前限制的请求直接拒绝而不排队
+ *
+ * @author example
+ */
+public class AimdLimiter {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double backoffRatio;
+
+    private final long latencyThresholdNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long latencyThresholdNanos) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+    }
+
+    /**
+     * 尝试获取许可，成功时返回获取时刻（纳秒），超出限制时返回-1
+     */
+    public long tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * 释放许可并根据本次耗时和结果调整限制
+     *
+     * @param acquireTime tryAcquire的返回值
+     * @param success     是否成功完成
+     */
+    public void release(long acquireTime, boolean success) {
+        int current = inFlight.getAndDecrement();
+        long elapsed = System.nanoTime() - acquireTime;
+
+        synchronized (this) {
+            if (!success || elapsed > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (current * 2 >= limit) {
+                // 只有限制确实被使用时才增长，避免空闲期间限制无限放大
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
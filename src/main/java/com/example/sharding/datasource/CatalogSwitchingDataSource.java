@@ -0,0 +1,52 @@
+package com.example.sharding.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 切换库的数据源视图
+ * 从共享连接池借出连接后切换到目标库，连接当前所在库与目标库相同时不切换
+ *
+ * @author example
+ */
+public class CatalogSwitchingDataSource extends DelegatingDataSource {
+
+    private final String schema;
+
+    public CatalogSwitchingDataSource(DataSource targetDataSource, String schema) {
+        super(targetDataSource);
+        this.schema = schema;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return switchCatalog(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return switchCatalog(super.getConnection(username, password));
+    }
+
+    public String getSchema() {
+        return schema;
+    }
+
+    /**
+     * MySQL驱动在本地记录连接当前所在的库，getCatalog不会访问数据库
+     */
+    private Connection switchCatalog(Connection connection) throws SQLException {
+        try {
+            if (!schema.equals(connection.getCatalog())) {
+                connection.setCatalog(schema);
+            }
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+}
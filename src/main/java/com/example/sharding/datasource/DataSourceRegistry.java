@@ -0,0 +1,401 @@
+package com.example.sharding.datasource;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.example.sharding.context.ShardingRoute;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 数据源注册中心
+ * 分片数据源目录来自spring.datasource.dynamic配置，连接池在首次路由到该数据源时才创建，
+ * 长时间空闲的连接池自动关闭，未在目录中的数据源直接拒绝
+ * <p>
+ * schema-switching模式下，位于同一MySQL实例（地址、参数、用户名相同）的分片库共用一个连接池，
+ * 借出连接时切换到目标库，连接数随并发量而不是分片数增长
+ * <p>
+ * 目录中的数据源可配置replicas从库列表，只读查询由getReadDataSource在可用从库间负载均衡，
+ * 从库故障只摘除该从库，不影响主库的熔断状态
+ *
+ * @author example
+ */
+@Slf4j
+public class DataSourceRegistry implements DisposableBean {
+
+    /**
+     * 数据源目录配置前缀
+     */
+    public static final String CATALOG_PREFIX = "spring.datasource.dynamic";
+
+    /**
+     * MySQL连接地址：前缀、库名、参数
+     */
+    private static final Pattern MYSQL_URL = Pattern.compile("^(jdbc:mysql://[^/?]+/)([^?]*)(\\?.*)?$");
+
+    /**
+     * 因未知数据源重新读取目录的最小间隔，错误的路由不会让每个请求都重新绑定配置
+     */
+    private static final long CATALOG_REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final Environment environment;
+
+    private final DataSource defaultDataSource;
+
+    private final long idleTimeoutNanos;
+
+    private final boolean schemaSwitching;
+
+    private final ShardHealthTracker shardHealthTracker;
+
+    /**
+     * 数据源目录
+     * key: 数据源键
+     */
+    private volatile Map<String, Target> catalog;
+
+    /**
+     * 已创建的连接池
+     * key: 连接池键，pool-per-database模式下为数据源键，schema-switching模式下为MySQL实例
+     */
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * 已创建的从库组
+     * key: 数据源键
+     */
+    private final Map<String, ReplicaSet> replicaSets = new ConcurrentHashMap<>();
+
+    /**
+     * 上次因未知数据源重新读取目录的时间
+     */
+    private long missRefreshedAt = System.nanoTime() - CATALOG_REFRESH_INTERVAL_NANOS;
+
+    public DataSourceRegistry(Environment environment, DataSource defaultDataSource, long idleTimeoutSeconds,
+                              boolean schemaSwitching, ShardHealthTracker shardHealthTracker) {
+        this.environment = environment;
+        this.defaultDataSource = defaultDataSource;
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        this.schemaSwitching = schemaSwitching;
+        this.shardHealthTracker = shardHealthTracker;
+        refreshCatalog();
+    }
+
+    /**
+     * 从Environment重新读取数据源目录，已创建的连接池不受影响；
+     * 运行时更新的属性源（如配置中心）中新增的分片库无需重启即可路由，修改本地配置文件仍需重启
+     */
+    public void refreshCatalog() {
+        Binder binder = Binder.get(environment);
+        Map<String, Object> entries = binder.bind(CATALOG_PREFIX, Bindable.mapOf(String.class, Object.class))
+                .orElse(Collections.emptyMap());
+
+        Map<String, Target> targets = new LinkedHashMap<>();
+        for (String key : entries.keySet()) {
+            targets.put(key, resolveTarget(binder, key));
+        }
+        this.catalog = Collections.unmodifiableMap(targets);
+        log.info("数据源目录: {}", targets);
+    }
+
+    /**
+     * 获取数据源，连接池不存在时按目录配置创建
+     *
+     * @throws IllegalStateException 数据源不在目录中
+     */
+    public DataSource getDataSource(String key) {
+        if (key == null || ShardingRoute.DEFAULT_DATA_SOURCE_KEY.equals(key)) {
+            return defaultDataSource;
+        }
+
+        Target target = catalog.get(key);
+        if (target == null && refreshIfAbsent(key)) {
+            target = catalog.get(key);
+        }
+        if (target == null) {
+            throw new IllegalStateException("未知的数据源: " + key);
+        }
+
+        Pool pool = pools.get(target.poolKey);
+        if (pool == null) {
+            pool = pools.computeIfAbsent(target.poolKey, poolKey -> createPool(poolKey, key));
+        }
+        pool.lastAccess = System.nanoTime();
+        return target.schema == null ? pool.dataSource : pool.view(target.schema);
+    }
+
+    /**
+     * 获取已创建的连接池对应的数据源，连接池未创建时返回null
+     * 不创建连接池，也不刷新空闲计时，供后台任务使用，不影响空闲连接池的关闭
+     *
+     * @throws IllegalStateException 数据源不在目录中
+     */
+    public DataSource peekDataSource(String key) {
+        if (key == null || ShardingRoute.DEFAULT_DATA_SOURCE_KEY.equals(key)) {
+            return defaultDataSource;
+        }
+
+        Target target = catalog.get(key);
+        if (target == null) {
+            throw new IllegalStateException("未知的数据源: " + key);
+        }
+        Pool pool = pools.get(target.poolKey);
+        if (pool == null) {
+            return null;
+        }
+        return target.schema == null ? pool.dataSource : pool.view(target.schema);
+    }
+
+    /**
+     * 获取数据源对应的物理连接池，连接池不存在时按目录配置创建
+     */
+    public DruidDataSource getPool(String key) {
+        DataSource dataSource = getDataSource(key);
+        return (DruidDataSource) (dataSource instanceof CatalogSwitchingDataSource
+                ? ((CatalogSwitchingDataSource) dataSource).getTargetDataSource() : dataSource);
+    }
+
+    /**
+     * 获取只读查询使用的数据源：从目录中该数据源的replicas里选择可用从库，没有可用从库时使用主库
+     */
+    public DataSource getReadDataSource(String key) {
+        Target target = key != null ? catalog.get(key) : null;
+        if (target == null || target.replicaCount == 0) {
+            return getDataSource(key);
+        }
+
+        ReplicaSet replicaSet = replicaSets.get(key);
+        if (replicaSet == null) {
+            replicaSet = replicaSets.computeIfAbsent(key, k -> createReplicaSet(k, target.replicaCount));
+        }
+        DataSource replica = replicaSet.choose();
+        return replica != null ? replica : getDataSource(key);
+    }
+
+    /**
+     * 检查已创建从库组的复制延迟
+     */
+    @Scheduled(fixedDelayString = "${sharding.read-write-split.lag-check-interval:5000}")
+    public void checkReplicaLag() {
+        long maxLag = environment.getProperty("sharding.read-write-split.max-lag-seconds", Long.class, 5L);
+        replicaSets.values().forEach(replicaSet -> replicaSet.checkLag(maxLag));
+    }
+
+    /**
+     * 各分片从库状态
+     */
+    public Map<String, Object> getReplicaStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        replicaSets.forEach((key, replicaSet) -> result.put(key, replicaSet.getStats()));
+        return result;
+    }
+
+    /**
+     * 数据源不在目录中时重新读取目录，距上次因未知数据源读取不足间隔时不重复读取
+     *
+     * @return 目录中是否包含该数据源
+     */
+    public synchronized boolean refreshIfAbsent(String key) {
+        if (contains(key)) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - missRefreshedAt < CATALOG_REFRESH_INTERVAL_NANOS) {
+            return false;
+        }
+        missRefreshedAt = now;
+        log.info("数据源[{}]不在目录中，重新读取数据源目录", key);
+        refreshCatalog();
+        return contains(key);
+    }
+
+    /**
+     * 是否为目录中的数据源
+     */
+    public boolean contains(String key) {
+        return ShardingRoute.DEFAULT_DATA_SOURCE_KEY.equals(key) || catalog.containsKey(key);
+    }
+
+    /**
+     * 数据源目录
+     */
+    public Set<String> getCatalog() {
+        return catalog.keySet();
+    }
+
+    /**
+     * 当前已创建的连接池
+     * key: 连接池键
+     */
+    public Map<String, DruidDataSource> getOpenDataSources() {
+        Map<String, DruidDataSource> result = new LinkedHashMap<>();
+        pools.forEach((key, pool) -> result.put(key, pool.dataSource));
+        return result;
+    }
+
+    /**
+     * 默认数据源的Druid连接池，不是Druid连接池时返回null
+     */
+    public DruidDataSource getDefaultPool() {
+        return defaultDataSource instanceof DruidDataSource ? (DruidDataSource) defaultDataSource : null;
+    }
+
+    /**
+     * 当前已创建的从库连接池
+     * key: 从库名称（数据源键#replica序号）
+     */
+    public Map<String, DruidDataSource> getOpenReplicaDataSources() {
+        Map<String, DruidDataSource> result = new LinkedHashMap<>();
+        replicaSets.values().forEach(replicaSet -> result.putAll(replicaSet.getDataSources()));
+        return result;
+    }
+
+    /**
+     * 关闭空闲超时且没有活动连接的连接池
+     */
+    @Scheduled(fixedDelayString = "${sharding.datasource.idle-check-interval:60000}")
+    public void evictIdlePools() {
+        long now = System.nanoTime();
+        pools.forEach((key, pool) -> {
+            if (now - pool.lastAccess > idleTimeoutNanos && pool.dataSource.getActiveCount() == 0
+                    && pools.remove(key, pool)) {
+                pool.dataSource.close();
+                log.info("连接池[{}]空闲超时，关闭连接池", key);
+            }
+        });
+        replicaSets.forEach((key, replicaSet) -> {
+            if (now - replicaSet.lastAccess > idleTimeoutNanos && replicaSets.remove(key, replicaSet)) {
+                replicaSet.close();
+                log.info("分片[{}]从库空闲超时，关闭连接池", key);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        pools.values().forEach(pool -> pool.dataSource.close());
+        pools.clear();
+        replicaSets.values().forEach(ReplicaSet::close);
+        replicaSets.clear();
+    }
+
+    /**
+     * 计算数据源对应的连接池，schema-switching模式下按MySQL实例分组
+     */
+    private Target resolveTarget(Binder binder, String key) {
+        String prefix = CATALOG_PREFIX + "." + key;
+        int replicaCount = 0;
+        while (binder.bind(prefix + ".replicas[" + replicaCount + "].url", String.class).isBound()) {
+            replicaCount++;
+        }
+
+        if (!schemaSwitching) {
+            return new Target(key, null, replicaCount);
+        }
+
+        String url = binder.bind(prefix + ".url", String.class).orElse("");
+        Matcher matcher = MYSQL_URL.matcher(url);
+        if (!matcher.matches() || matcher.group(2).isEmpty()) {
+            log.warn("数据源[{}]的连接地址无法识别库名，使用独立连接池: {}", key, url);
+            return new Target(key, null, replicaCount);
+        }
+
+        String username = binder.bind(prefix + ".username", String.class).orElse("");
+        String query = matcher.group(3) != null ? matcher.group(3) : "";
+        return new Target(username + "@" + matcher.group(1) + query, matcher.group(2), replicaCount);
+    }
+
+    /**
+     * 按目录中数据源的配置创建连接池，共享连接池使用第一个路由到的数据源的配置
+     */
+    private Pool createPool(String poolKey, String key) {
+        DruidDataSource dataSource = new DruidDataSource();
+        Binder.get(environment).bind(CATALOG_PREFIX + "." + key, Bindable.ofInstance(dataSource));
+        dataSource.setName(poolKey);
+        if (shardHealthTracker != null) {
+            dataSource.getProxyFilters().add(shardHealthTracker.getStatementFilter());
+        }
+        if (!poolKey.equals(key)) {
+            // 服务端预编译语句绑定在预编译时的库上，共享连接池不缓存预编译语句
+            dataSource.setPoolPreparedStatements(false);
+        }
+        log.info("创建连接池[{}]", poolKey);
+        return new Pool(dataSource);
+    }
+
+    /**
+     * 创建从库组，从库配置继承主库配置，replicas中只需填写不同的项（通常是url）
+     */
+    private ReplicaSet createReplicaSet(String key, int replicaCount) {
+        Binder binder = Binder.get(environment);
+        List<DruidDataSource> dataSources = new ArrayList<>(replicaCount);
+        for (int i = 0; i < replicaCount; i++) {
+            DruidDataSource dataSource = new DruidDataSource();
+            binder.bind(CATALOG_PREFIX + "." + key, Bindable.ofInstance(dataSource));
+            binder.bind(CATALOG_PREFIX + "." + key + ".replicas[" + i + "]", Bindable.ofInstance(dataSource));
+            // 从库不挂分片熔断过滤器：熔断按主库的数据源键统计，从库故障由ReplicaSet单独摘除
+            dataSource.setName(key + "#replica" + i);
+            dataSources.add(dataSource);
+        }
+
+        boolean leastInFlight = "least-in-flight".equals(
+                environment.getProperty("sharding.read-write-split.load-balance", "round-robin"));
+        log.info("创建分片[{}]从库组，从库数: {}", key, replicaCount);
+        return new ReplicaSet(key, dataSources, leastInFlight);
+    }
+
+    private static final class Target {
+
+        final String poolKey;
+
+        /**
+         * 借出连接时切换的库名，为null表示使用独立连接池
+         */
+        final String schema;
+
+        final int replicaCount;
+
+        Target(String poolKey, String schema, int replicaCount) {
+            this.poolKey = poolKey;
+            this.schema = schema;
+            this.replicaCount = replicaCount;
+        }
+
+        @Override
+        public String toString() {
+            return schema == null ? poolKey : schema + "@" + poolKey;
+        }
+    }
+
+    private static final class Pool {
+
+        final DruidDataSource dataSource;
+
+        final Map<String, DataSource> views = new ConcurrentHashMap<>();
+
+        volatile long lastAccess = System.nanoTime();
+
+        Pool(DruidDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        DataSource view(String schema) {
+            DataSource view = views.get(schema);
+            return view != null ? view : views.computeIfAbsent(schema, s -> new CatalogSwitchingDataSource(dataSource, s));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.sharding.datasource;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.example.sharding.context.ShardingRoute;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 连接池预算管理
+ * 按MySQL实例限制本节点全部连接池（默认数据源、分片主库和从库）的总连接数，根据各连接池的等待和使用情况周期性调整max-active：
+ * 出现等待的连接池扩容，使用率低的连接池逐步缩容，实例总量超出预算时按需求比例分配；默认数据源只占用预算，不调整
+ *
+ * @author example
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sharding.datasource.budget", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class PoolBudgetManager {
+
+    private static final Pattern HOST = Pattern.compile("^jdbc:mysql://([^/?]+).*$");
+
+    @Autowired
+    private DataSourceRegistry dataSourceRegistry;
+
+    /**
+     * 每个MySQL实例的最大连接数
+     */
+    @Value("${sharding.datasource.budget.max-connections-per-host:100}")
+    private int maxConnectionsPerHost;
+
+    /**
+     * 单个连接池的最小max-active
+     */
+    @Value("${sharding.datasource.budget.min-active:2}")
+    private int minActive;
+
+    /**
+     * 各连接池上次统计时的累计等待次数
+     */
+    private final Map<String, Long> lastWaitCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 最近一次调整结果
+     */
+    private volatile List<Map<String, Object>> decisions = Collections.emptyList();
+
+    @Scheduled(fixedDelayString = "${sharding.datasource.budget.interval:10000}")
+    public void rebalance() {
+        Map<String, DruidDataSource> dataSources = new LinkedHashMap<>(dataSourceRegistry.getOpenDataSources());
+        dataSources.putAll(dataSourceRegistry.getOpenReplicaDataSources());
+        Map<String, List<String>> hosts = new LinkedHashMap<>();
+        dataSources.forEach((key, dataSource) ->
+                hosts.computeIfAbsent(hostOf(dataSource.getUrl()), h -> new ArrayList<>()).add(key));
+        lastWaitCounts.keySet().retainAll(dataSources.keySet());
+
+        // 默认数据源的连接池大小由配置决定，不参与调整，但占用所在实例的预算
+        List<Map<String, Object>> result = new ArrayList<>();
+        DruidDataSource defaultPool = dataSourceRegistry.getDefaultPool();
+        String defaultHost = defaultPool == null ? null : hostOf(defaultPool.getUrl());
+        int reserved = defaultPool == null ? 0 : defaultPool.getMaxActive();
+        if (defaultPool != null) {
+            Map<String, Object> decision = new LinkedHashMap<>();
+            decision.put("pool", ShardingRoute.DEFAULT_DATA_SOURCE_KEY);
+            decision.put("host", defaultHost);
+            decision.put("previousMaxActive", reserved);
+            decision.put("maxActive", reserved);
+            decision.put("activeCount", defaultPool.getActiveCount());
+            decision.put("fixed", true);
+            result.add(decision);
+        }
+
+        hosts.forEach((host, keys) -> {
+            int size = keys.size();
+            int[] current = new int[size];
+            int[] active = new int[size];
+            long[] waits = new long[size];
+            int[] floors = new int[size];
+            for (int i = 0; i < size; i++) {
+                DruidDataSource dataSource = dataSources.get(keys.get(i));
+                current[i] = dataSource.getMaxActive();
+                active[i] = dataSource.getActiveCount();
+                long waitCount = dataSource.getNotEmptyWaitCount();
+                Long last = lastWaitCounts.put(keys.get(i), waitCount);
+                waits[i] = last == null ? 0 : waitCount - last;
+                // Druid运行中不允许max-active小于min-idle
+                floors[i] = Math.max(minActive, dataSource.getMinIdle());
+            }
+
+            int budget = host.equals(defaultHost) ? Math.max(0, maxConnectionsPerHost - reserved) : maxConnectionsPerHost;
+            int[] allocated = allocate(current, active, waits, floors, budget);
+            for (int i = 0; i < size; i++) {
+                DruidDataSource dataSource = dataSources.get(keys.get(i));
+                if (allocated[i] != current[i]) {
+                    dataSource.setMaxActive(allocated[i]);
+                    log.info("连接池[{}]max-active调整: {} -> {}，活动连接: {}，等待次数: {}",
+                            keys.get(i), current[i], allocated[i], active[i], waits[i]);
+                }
+
+                Map<String, Object> decision = new LinkedHashMap<>();
+                decision.put("pool", keys.get(i));
+                decision.put("host", host);
+                decision.put("previousMaxActive", current[i]);
+                decision.put("maxActive", allocated[i]);
+                decision.put("activeCount", active[i]);
+                decision.put("waitCount", waits[i]);
+                decision.put("waitMillis", dataSource.getNotEmptyWaitMillis());
+                result.add(decision);
+            }
+        });
+        this.decisions = Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 最近一次调整结果
+     */
+    public List<Map<String, Object>> getDecisions() {
+        return decisions;
+    }
+
+    /**
+     * 计算同一实例上各连接池的max-active
+     * 有等待的扩容25%，使用率低于一半的缩容12.5%，其余保持；总量超出预算时，
+     * 先保证每个连接池的下限和当前活动连接，剩余预算按超出部分的比例分配
+     */
+    static int[] allocate(int[] current, int[] active, long[] waits, int[] floors, int budget) {
+        int size = current.length;
+        int[] want = new int[size];
+        int[] base = new int[size];
+        long wantTotal = 0;
+        long baseTotal = 0;
+        for (int i = 0; i < size; i++) {
+            if (waits[i] > 0) {
+                want[i] = current[i] + Math.max(1, current[i] / 4);
+            } else if (active[i] < current[i] / 2) {
+                want[i] = current[i] - Math.max(1, current[i] / 8);
+            } else {
+                want[i] = current[i];
+            }
+            want[i] = Math.max(want[i], Math.max(floors[i], active[i]));
+            base[i] = Math.max(floors[i], active[i]);
+            wantTotal += want[i];
+            baseTotal += base[i];
+        }
+
+        if (wantTotal <= budget) {
+            return want;
+        }
+        if (baseTotal >= budget) {
+            return base;
+        }
+
+        // 按超出下限部分的比例分配剩余预算
+        long remaining = budget - baseTotal;
+        long extraTotal = wantTotal - baseTotal;
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = base[i] + (int) ((want[i] - base[i]) * remaining / extraTotal);
+        }
+        return result;
+    }
+
+    private static String hostOf(String url) {
+        Matcher matcher = HOST.matcher(url == null ? "" : url);
+        return matcher.matches() ? matcher.group(1) : String.valueOf(url);
+    }
+}
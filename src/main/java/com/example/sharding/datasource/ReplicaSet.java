@@ -0,0 +1,246 @@
+package com.example.sharding.datasource;
+
+import com.alibaba.druid.filter.FilterEventAdapter;
+import com.alibaba.druid.pool.DruidDataSource;
+import com.alibaba.druid.proxy.jdbc.StatementProxy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分片从库组
+ * 按轮询或最少进行中连接选择从库，复制延迟超过阈值或复制中断的从库暂时跳过；
+ * 从库的连接错误只摘除该从库（健康键为"数据源键#replica序号"），不计入主库熔断，下次延迟检查正常后恢复
+ *
+ * @author example
+ */
+@Slf4j
+public class ReplicaSet {
+
+    private final String key;
+
+    private final List<Replica> replicas;
+
+    private final boolean leastInFlight;
+
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    volatile long lastAccess = System.nanoTime();
+
+    public ReplicaSet(String key, List<DruidDataSource> dataSources, boolean leastInFlight) {
+        this.key = key;
+        this.leastInFlight = leastInFlight;
+        this.replicas = new ArrayList<>(dataSources.size());
+        for (int i = 0; i < dataSources.size(); i++) {
+            Replica replica = new Replica(key + "#replica" + i, dataSources.get(i));
+            dataSources.get(i).getProxyFilters().add(new ReplicaHealthFilter(replica));
+            replicas.add(replica);
+        }
+    }
+
+    /**
+     * 各从库的连接池
+     * key: 从库名称
+     */
+    public Map<String, DruidDataSource> getDataSources() {
+        Map<String, DruidDataSource> result = new LinkedHashMap<>();
+        replicas.forEach(replica -> result.put(replica.name, replica.dataSource));
+        return result;
+    }
+
+    /**
+     * 选择一个可用从库，没有可用从库时返回null
+     */
+    public Replica choose() {
+        lastAccess = System.nanoTime();
+        int size = replicas.size();
+        Replica chosen = null;
+        if (leastInFlight) {
+            for (Replica replica : replicas) {
+                if (replica.healthy && (chosen == null || replica.inFlight.get() < chosen.inFlight.get())) {
+                    chosen = replica;
+                }
+            }
+            return chosen;
+        }
+
+        int start = cursor.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 检查各从库的复制延迟
+     *
+     * @param maxLagSeconds 允许的最大延迟(秒)
+     */
+    public void checkLag(long maxLagSeconds) {
+        for (Replica replica : replicas) {
+            long lag = queryLag(replica);
+            boolean healthy = lag >= 0 && lag <= maxLagSeconds;
+            if (healthy != replica.healthy) {
+                log.warn("从库[{}]{}，复制延迟: {}秒，地址: {}", replica.name,
+                        healthy ? "恢复读流量" : "暂停读流量", lag, replica.dataSource.getUrl());
+            }
+            replica.lagSeconds = lag;
+            replica.healthy = healthy;
+        }
+    }
+
+    public List<Map<String, Object>> getStats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (Replica replica : replicas) {
+            Map<String, Object> stat = new LinkedHashMap<>();
+            stat.put("name", replica.name);
+            stat.put("url", replica.dataSource.getUrl());
+            stat.put("healthy", replica.healthy);
+            stat.put("lagSeconds", replica.lagSeconds);
+            stat.put("inFlight", replica.inFlight.get());
+            stats.add(stat);
+        }
+        return stats;
+    }
+
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    /**
+     * 查询复制延迟，复制中断或无法连接时返回-1
+     * 优先使用SHOW REPLICA STATUS（MySQL 8.0.22+），不支持时改用SHOW SLAVE STATUS
+     */
+    private static long queryLag(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            if (!replica.legacyStatus) {
+                try (ResultSet rs = statement.executeQuery("SHOW REPLICA STATUS")) {
+                    return lagOf(rs, "Seconds_Behind_Source");
+                } catch (SQLException e) {
+                    if (!(e instanceof SQLSyntaxErrorException) && e.getErrorCode() != 1064) {
+                        throw e;
+                    }
+                    log.info("从库[{}]不支持SHOW REPLICA STATUS，改用SHOW SLAVE STATUS", replica.name);
+                    replica.legacyStatus = true;
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("SHOW SLAVE STATUS")) {
+                return lagOf(rs, "Seconds_Behind_Master");
+            }
+        } catch (SQLException e) {
+            log.warn("查询从库[{}]复制延迟失败: {}", replica.name, e.getMessage());
+            return -1;
+        }
+    }
+
+    private static long lagOf(ResultSet rs, String column) throws SQLException {
+        if (!rs.next()) {
+            // 未配置复制（如测试环境直接指向主库）
+            return 0;
+        }
+        long lag = rs.getLong(column);
+        return rs.wasNull() ? -1 : lag;
+    }
+
+    /**
+     * 从库数据源，记录进行中的连接数
+     */
+    public static final class Replica extends DelegatingDataSource {
+
+        /**
+         * 健康键，数据源键#replica序号
+         */
+        final String name;
+
+        final DruidDataSource dataSource;
+
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        volatile boolean healthy = true;
+
+        volatile long lagSeconds;
+
+        /**
+         * 是否使用SHOW SLAVE STATUS查询复制延迟
+         */
+        volatile boolean legacyStatus;
+
+        Replica(String name, DruidDataSource dataSource) {
+            super(dataSource);
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            try {
+                return track(super.getConnection());
+            } catch (SQLException e) {
+                onError(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            try {
+                return track(super.getConnection(username, password));
+            } catch (SQLException e) {
+                onError(e);
+                throw e;
+            }
+        }
+
+        /**
+         * 获取连接失败或出现连接类SQL错误时摘除该从库，直到下次延迟检查正常
+         */
+        void onError(Throwable error) {
+            if (healthy) {
+                healthy = false;
+                log.warn("从库[{}]出现连接错误，暂停读流量: {}", name, error.getMessage());
+            }
+        }
+
+        private Connection track(Connection connection) {
+            inFlight.incrementAndGet();
+            return ShardBulkhead.releaseOnClose(connection, inFlight::decrementAndGet);
+        }
+    }
+
+    /**
+     * 从库连接类SQL错误摘除该从库，不经过主库的熔断器
+     */
+    private static final class ReplicaHealthFilter extends FilterEventAdapter {
+
+        private final Replica replica;
+
+        ReplicaHealthFilter(Replica replica) {
+            this.replica = replica;
+        }
+
+        @Override
+        protected void statement_executeErrorAfter(StatementProxy statement, String sql, Throwable error) {
+            if (ShardHealthTracker.isConnectionError(error)) {
+                replica.onError(error);
+            }
+        }
+    }
+}
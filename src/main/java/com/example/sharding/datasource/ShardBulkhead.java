@@ -0,0 +1,193 @@
+package com.example.sharding.datasource;
+
+import com.example.sharding.context.ShardingRoute;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分片舱壁
+ * 按数据源键隔离并发：连接从借出到关闭占用一个许可，许可数由AIMD根据连接占用时间自适应调整；
+ * 异步任务从提交到执行完成占用一个固定上限的许可。超出限制时立即失败，某个分片变慢不会占满所有线程
+ *
+ * @author example
+ */
+@Slf4j
+@Component
+public class ShardBulkhead {
+
+    @Value("${sharding.bulkhead.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sharding.bulkhead.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${sharding.bulkhead.min-limit:2}")
+    private int minLimit;
+
+    @Value("${sharding.bulkhead.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${sharding.bulkhead.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    /**
+     * 连接占用时间超过该值(毫秒)视为分片变慢
+     */
+    @Value("${sharding.bulkhead.latency-threshold:1000}")
+    private long latencyThreshold;
+
+    /**
+     * 每个分片同时提交的异步任务上限
+     */
+    @Value("${sharding.bulkhead.async-max-per-shard:10}")
+    private int asyncMaxPerShard;
+
+    private final Map<String, AimdLimiter> limiters = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicInteger> asyncInFlight = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> rejected = new ConcurrentHashMap<>();
+
+    /**
+     * 获取连接许可，连接关闭时自动释放
+     *
+     * @throws ShardUnavailableException 分片已达并发上限
+     */
+    public Connection guard(String dataSourceKey, ConnectionSupplier supplier) throws SQLException {
+        if (!enabled || ShardingRoute.DEFAULT_DATA_SOURCE_KEY.equals(dataSourceKey)) {
+            return supplier.get();
+        }
+
+        AimdLimiter limiter = limiterOf(dataSourceKey);
+        long acquireTime = limiter.tryAcquire();
+        if (acquireTime < 0) {
+            rejectedOf(dataSourceKey).increment();
+            throw new ShardUnavailableException("分片[" + dataSourceKey + "]并发已达上限" + limiter.getLimit() + "，请求被拒绝");
+        }
+
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException e) {
+            limiter.release(acquireTime, false);
+            throw e;
+        }
+        return releaseOnClose(connection, () -> limiter.release(acquireTime, true));
+    }
+
+    /**
+     * 包装异步任务，提交时占用许可，执行完成后释放
+     *
+     * @throws RejectedExecutionException 分片异步任务已达上限
+     */
+    public Runnable guardAsync(String dataSourceKey, Runnable task) {
+        if (!enabled || dataSourceKey == null || ShardingRoute.DEFAULT_DATA_SOURCE_KEY.equals(dataSourceKey)) {
+            return task;
+        }
+
+        AtomicInteger counter = asyncInFlight.get(dataSourceKey);
+        if (counter == null) {
+            counter = asyncInFlight.computeIfAbsent(dataSourceKey, k -> new AtomicInteger());
+        }
+        if (counter.incrementAndGet() > asyncMaxPerShard) {
+            counter.decrementAndGet();
+            rejectedOf(dataSourceKey).increment();
+            throw new RejectedExecutionException("分片[" + dataSourceKey + "]异步任务已达上限" + asyncMaxPerShard + "，任务被拒绝");
+        }
+
+        AtomicInteger inFlight = counter;
+        return () -> {
+            try {
+                task.run();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * 各分片的并发限制、当前并发和拒绝次数
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        limiters.forEach((key, limiter) -> {
+            Map<String, Object> stat = new LinkedHashMap<>();
+            stat.put("limit", limiter.getLimit());
+            stat.put("inFlight", limiter.getInFlight());
+            AtomicInteger async = asyncInFlight.get(key);
+            stat.put("asyncInFlight", async != null ? async.get() : 0);
+            LongAdder rejectedCount = rejected.get(key);
+            stat.put("rejected", rejectedCount != null ? rejectedCount.sum() : 0L);
+            stats.put(key, stat);
+        });
+        return stats;
+    }
+
+    private AimdLimiter limiterOf(String dataSourceKey) {
+        AimdLimiter limiter = limiters.get(dataSourceKey);
+        if (limiter != null) {
+            return limiter;
+        }
+        return limiters.computeIfAbsent(dataSourceKey, k -> new AimdLimiter(initialLimit, minLimit, maxLimit,
+                backoffRatio, TimeUnit.MILLISECONDS.toNanos(latencyThreshold)));
+    }
+
+    private LongAdder rejectedOf(String dataSourceKey) {
+        LongAdder counter = rejected.get(dataSourceKey);
+        return counter != null ? counter : rejected.computeIfAbsent(dataSourceKey, k -> new LongAdder());
+    }
+
+    /**
+     * 代理连接，第一次close时执行回调
+     */
+    static Connection releaseOnClose(Connection connection, Runnable onClose) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ShardBulkhead.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        try {
+                            connection.close();
+                        } finally {
+                            onClose.run();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    /**
+     * 获取连接
+     */
+    @FunctionalInterface
+    public interface ConnectionSupplier {
+
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.sharding.datasource;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分片熔断器
+ * 连续失败达到阈值后打开，打开期间请求立即失败；打开时间结束后进入半开状态，只放行一个探测请求，
+ * 探测成功则关闭，失败则重新打开
+ *
+ * @author example
+ */
+public class ShardCircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+
+    private final long openNanos;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile State state = State.CLOSED;
+
+    /**
+     * 进入OPEN状态或放行探测请求的时间
+     */
+    private volatile long stateTime = System.nanoTime();
+
+    private volatile String lastError;
+
+    public ShardCircuitBreaker(int failureThreshold, long openNanos) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+    }
+
+    /**
+     * 是否放行请求
+     */
+    public boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        // OPEN超时后放行一个探测请求；探测请求长时间没有结果时再放行下一个
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (System.nanoTime() - stateTime > openNanos) {
+                state = State.HALF_OPEN;
+                stateTime = System.nanoTime();
+                return true;
+            }
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state != State.CLOSED) {
+            synchronized (this) {
+                state = State.CLOSED;
+                stateTime = System.nanoTime();
+            }
+        }
+    }
+
+    public void onFailure(Throwable error) {
+        failures.increment();
+        lastError = error.getMessage();
+        int count = consecutiveFailures.incrementAndGet();
+        if (state == State.HALF_OPEN || (state == State.CLOSED && count >= failureThreshold)) {
+            synchronized (this) {
+                state = State.OPEN;
+                stateTime = System.nanoTime();
+            }
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.sharding.datasource;
+
+import com.alibaba.druid.filter.Filter;
+import com.alibaba.druid.filter.FilterEventAdapter;
+import com.alibaba.druid.proxy.jdbc.ResultSetProxy;
+import com.alibaba.druid.proxy.jdbc.StatementProxy;
+import com.example.sharding.context.ShardingContext;
+import com.example.sharding.context.ShardingRoute;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片健康跟踪
+ * 按数据源键统计获取连接失败和连接类SQL错误，驱动各分片的熔断器；
+ * 熔断打开的分片在获取连接前直接失败，不再等待max-wait
+ *
+ * @author example
+ */
+@Slf4j
+@Component
+public class ShardHealthTracker {
+
+    @Value("${sharding.circuit-breaker.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 连续失败次数阈值
+     */
+    @Value("${sharding.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    /**
+     * 打开状态持续时间(毫秒)，之后放行探测请求
+     */
+    @Value("${sharding.circuit-breaker.open-duration:10000}")
+    private long openDuration;
+
+    private final Map<String, ShardCircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * 按当前线程的路由记录SQL执行结果的Druid过滤器，由DataSourceRegistry添加到每个分片连接池
+     */
+    private final Filter statementFilter = new StatementHealthFilter();
+
+    /**
+     * 检查分片是否可用
+     *
+     * @throws ShardUnavailableException 分片熔断打开
+     */
+    public void checkAvailable(String dataSourceKey) throws ShardUnavailableException {
+        if (!isTracked(dataSourceKey)) {
+            return;
+        }
+        ShardCircuitBreaker breaker = breakerOf(dataSourceKey);
+        if (!breaker.allowRequest()) {
+            throw new ShardUnavailableException("分片[" + dataSourceKey + "]熔断中，请求被拒绝: " + breaker.getLastError());
+        }
+    }
+
+    public void onSuccess(String dataSourceKey) {
+        if (isTracked(dataSourceKey)) {
+            breakerOf(dataSourceKey).onSuccess();
+        }
+    }
+
+    public void onFailure(String dataSourceKey, Throwable error) {
+        if (!isTracked(dataSourceKey)) {
+            return;
+        }
+        ShardCircuitBreaker breaker = breakerOf(dataSourceKey);
+        ShardCircuitBreaker.State before = breaker.getState();
+        breaker.onFailure(error);
+        if (before != ShardCircuitBreaker.State.OPEN && breaker.getState() == ShardCircuitBreaker.State.OPEN) {
+            log.warn("分片[{}]熔断打开，{}毫秒后探测: {}", dataSourceKey, openDuration, error.getMessage());
+        }
+    }
+
+    public Filter getStatementFilter() {
+        return statementFilter;
+    }
+
+    /**
+     * 各分片健康状态
+     */
+    public Map<String, Map<String, Object>> getStates() {
+        Map<String, Map<String, Object>> states = new LinkedHashMap<>();
+        breakers.forEach((key, breaker) -> {
+            Map<String, Object> state = new LinkedHashMap<>();
+            state.put("state", breaker.getState());
+            state.put("consecutiveFailures", breaker.getConsecutiveFailures());
+            state.put("failures", breaker.getFailures());
+            state.put("rejected", breaker.getRejected());
+            state.put("lastError", breaker.getLastError());
+            states.put(key, state);
+        });
+        return states;
+    }
+
+    /**
+     * 是否为表示分片不可用的错误，SQL语法、约束冲突等业务错误不计入；
+     * 查询超时只说明语句慢(或被截止时间取消)，连接仍然可用，也不计入
+     */
+    static boolean isConnectionError(Throwable error) {
+        if (error instanceof SQLNonTransientConnectionException || error instanceof SQLRecoverableException) {
+            return true;
+        }
+        return error instanceof SQLException && ((SQLException) error).getSQLState() != null
+                && ((SQLException) error).getSQLState().startsWith("08");
+    }
+
+    private boolean isTracked(String dataSourceKey) {
+        return enabled && dataSourceKey != null && !ShardingRoute.DEFAULT_DATA_SOURCE_KEY.equals(dataSourceKey);
+    }
+
+    private ShardCircuitBreaker breakerOf(String dataSourceKey) {
+        ShardCircuitBreaker breaker = breakers.get(dataSourceKey);
+        if (breaker != null) {
+            return breaker;
+        }
+        return breakers.computeIfAbsent(dataSourceKey,
+                k -> new ShardCircuitBreaker(failureThreshold, TimeUnit.MILLISECONDS.toNanos(openDuration)));
+    }
+
+    private class StatementHealthFilter extends FilterEventAdapter {
+
+        @Override
+        protected void statementExecuteAfter(StatementProxy statement, String sql, boolean result) {
+            onSuccess(ShardingContext.getDataSourceKey());
+        }
+
+        @Override
+        protected void statementExecuteQueryAfter(StatementProxy statement, String sql, ResultSetProxy resultSet) {
+            onSuccess(ShardingContext.getDataSourceKey());
+        }
+
+        @Override
+        protected void statementExecuteUpdateAfter(StatementProxy statement, String sql, int updateCount) {
+            onSuccess(ShardingContext.getDataSourceKey());
+        }
+
+        @Override
+        protected void statementExecuteBatchAfter(StatementProxy statement, int[] result) {
+            onSuccess(ShardingContext.getDataSourceKey());
+        }
+
+        @Override
+        protected void statement_executeErrorAfter(StatementProxy statement, String sql, Throwable error) {
+            if (isConnectionError(error)) {
+                onFailure(ShardingContext.getDataSourceKey(), error);
+            }
+        }
+    }
+}
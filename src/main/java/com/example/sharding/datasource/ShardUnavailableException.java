@@ -0,0 +1,17 @@
+package com.example.sharding.datasource;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * 分片不可用或已达并发上限，请求被快速拒绝
+ *
+ * @author example
+ */
+public class ShardUnavailableException extends SQLTransientConnectionException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ShardUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.sharding.datasource;
+
+import cn.hutool.core.thread.ThreadUtil;
+import com.alibaba.druid.pool.DruidDataSource;
+import com.example.sharding.context.ShardingContext;
+import com.example.sharding.context.ShardingRoute;
+import com.example.sharding.entity.ShardingConfig;
+import com.example.sharding.service.ShardingConfigService;
+import com.example.sharding.strategy.ShardingStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.RowBounds;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 分片连接池预热
+ * 启动时并行初始化目录中所有分片连接池并建立min-idle个连接，可选地在每个分片上执行一次热点Mapper语句，
+ * 完成后才报告就绪，避免发布后的首批请求承担建连和SQL解析的开销
+ *
+ * @author example
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sharding.warmup", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ShardWarmup implements ApplicationRunner {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private DataSourceRegistry dataSourceRegistry;
+
+    @Autowired
+    private ShardingConfigService shardingConfigService;
+
+    @Autowired
+    private ShardingStrategy shardingStrategy;
+
+    @Autowired
+    private SqlSessionTemplate sqlSessionTemplate;
+
+    /**
+     * 每个分片执行一次的Mapper语句ID，逗号分隔
+     */
+    @Value("${sharding.warmup.statements:}")
+    private List<String> statements;
+
+    @Value("${sharding.warmup.parallelism:8}")
+    private int parallelism;
+
+    /**
+     * 预热超时(秒)，超时后不再等待，直接报告就绪
+     */
+    @Value("${sharding.warmup.timeout:60}")
+    private long timeout;
+
+    private volatile boolean ready;
+
+    private final Map<String, String> results = new LinkedHashMap<>();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        AvailabilityChangeEvent.publish(applicationContext, ReadinessState.REFUSING_TRAFFIC);
+        long start = System.currentTimeMillis();
+
+        List<String> keys = new ArrayList<>(dataSourceRegistry.getCatalog());
+        Map<String, String> projects = statements.isEmpty() ? Collections.emptyMap() : sampleProjects();
+
+        ExecutorService executor = ThreadUtil.newExecutor(Math.max(1, Math.min(parallelism, keys.size())));
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                futures.add(CompletableFuture.runAsync(() -> record(key, warmUp(key, projects.get(key))), executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(timeout, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.warn("分片预热超过{}秒，未完成的分片在首次访问时继续初始化", timeout);
+        } catch (Exception e) {
+            log.warn("分片预热异常", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        ready = true;
+        AvailabilityChangeEvent.publish(applicationContext, ReadinessState.ACCEPTING_TRAFFIC);
+        log.info("分片预热完成，耗时{}ms: {}", System.currentTimeMillis() - start, getResults());
+    }
+
+    /**
+     * 预热是否完成
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized Map<String, String> getResults() {
+        return new LinkedHashMap<>(results);
+    }
+
+    private synchronized void record(String key, String result) {
+        results.put(key, result);
+    }
+
+    /**
+     * 初始化单个分片的连接池，并在该分片的一个项目路由下执行热点语句
+     */
+    private String warmUp(String key, String projectId) {
+        try {
+            DruidDataSource pool = dataSourceRegistry.getPool(key);
+            pool.init();
+            pool.fill(pool.getMinIdle());
+
+            int executed = 0;
+            if (projectId != null) {
+                ShardingRoute previous = ShardingContext.push(shardingStrategy.resolve(projectId));
+                try {
+                    for (String statement : statements) {
+                        executed += executeStatement(statement);
+                    }
+                } finally {
+                    ShardingContext.pop(previous);
+                }
+            }
+            return "OK, 连接数: " + pool.getPoolingCount() + ", 预热语句: " + executed;
+        } catch (Exception e) {
+            log.warn("分片[{}]预热失败: {}", key, e.getMessage());
+            return "FAILED: " + e.getMessage();
+        }
+    }
+
+    /**
+     * 以空参数执行语句，只为完成SQL解析、表名改写计划编译和服务端执行，不关心结果
+     */
+    private int executeStatement(String statement) {
+        try {
+            sqlSessionTemplate.selectList(statement, null, new RowBounds(0, 1));
+            return 1;
+        } catch (Exception e) {
+            log.debug("预热语句[{}]执行失败: {}", statement, e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * 为每个分片选取一个已配置的项目，用于在真实的表后缀下执行预热语句
+     */
+    private Map<String, String> sampleProjects() {
+        Map<String, String> projects = new LinkedHashMap<>();
+        try {
+            for (ShardingConfig config : shardingConfigService.list()) {
+                projects.putIfAbsent("database-" + config.getDatabaseSuffix(), config.getProjectId());
+            }
+        } catch (Exception e) {
+            log.warn("读取分片配置失败，跳过预热语句: {}", e.getMessage());
+        }
+        return projects;
+    }
+}
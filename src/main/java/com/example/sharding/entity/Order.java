@@ -1,6 +1,7 @@
 package com.example.sharding.entity;
 
 import com.baomidou.mybatisplus.annotation.*;
+import com.example.sharding.annotation.ShardingTable;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.experimental.Accessors;
@@ -16,6 +17,7 @@ import java.time.LocalDateTime;
 @Data
 @EqualsAndHashCode(callSuper = false)
 @Accessors(chain = true)
+@ShardingTable
 @TableName("order_info")
 public class Order {
 
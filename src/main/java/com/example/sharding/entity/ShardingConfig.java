@@ -50,8 +50,10 @@ public class ShardingConfig {
 
     /**
      * 更新时间
+     * 由数据库时钟设置（插入时取列默认值，更新时为NOW()），不使用应用节点时间，配置变更监听以此作为水位
      */
-    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    @TableField(value = "update_time", insertStrategy = FieldStrategy.NEVER,
+            update = "NOW()", updateStrategy = FieldStrategy.IGNORED)
     private LocalDateTime updateTime;
 
     /**
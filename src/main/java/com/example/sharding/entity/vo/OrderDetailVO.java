@@ -1,5 +1,6 @@
 package com.example.sharding.entity.vo;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.experimental.Accessors;
 
@@ -114,4 +115,10 @@ public class OrderDetailVO {
      * 订单创建时间
      */
     private LocalDateTime orderCreateTime;
+
+    /**
+     * 跨项目查询的来源物理表(数据源键:表后缀)，不同物理表的明细ID可能相同，作为归并排序的最后一级
+     */
+    @JsonIgnore
+    private String sourceKey;
 }
\ No newline at end of file
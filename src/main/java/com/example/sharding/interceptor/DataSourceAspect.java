@@ -1,7 +1,8 @@
 package com.example.sharding.interceptor;
 
 import com.example.sharding.annotation.ShardingDataSource;
-import com.example.sharding.context.DatabaseContext;
+import com.example.sharding.context.ShardingContext;
+import com.example.sharding.context.ShardingRoute;
 import com.example.sharding.strategy.ShardingStrategy;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -13,7 +14,8 @@ import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 数据源切换切面
@@ -30,81 +32,53 @@ public class DataSourceAspect {
     @Autowired
     private ShardingStrategy shardingStrategy;
     
+    /**
+     * 项目ID提取器缓存
+     * key: 被拦截的方法
+     */
+    private final Map<Method, ProjectIdExtractor> extractorCache = new ConcurrentHashMap<>();
+    
     /**
      * 环绕通知，处理带有@ShardingDataSource注解的方法
      */
     @Around("@annotation(shardingDataSource) || @within(shardingDataSource)")
     public Object around(ProceedingJoinPoint point, ShardingDataSource shardingDataSource) throws Throwable {
+        // 解析项目ID
+        String projectId = parseProjectId(point, shardingDataSource);
+        if (projectId == null || projectId.isEmpty()) {
+            return point.proceed();
+        }
+        
+        // 已处于同一项目的路由中（如请求级拦截器已绑定），无需重复解析
+        ShardingRoute current = ShardingContext.current();
+        if (current != null && projectId.equals(current.getProjectId())) {
+            return point.proceed();
+        }
+        
+        // 一次解析得到数据源键和表后缀
+        ShardingRoute route = shardingStrategy.resolve(projectId);
+        
+        // 进入路由范围，退出时恢复外层路由（最外层退出后清空上下文）
+        ShardingRoute previous = ShardingContext.push(route);
+        log.debug("设置分片上下文: {}", route);
         try {
-            // 解析项目ID
-            String projectId = parseProjectId(point, shardingDataSource);
-            
-            if (projectId != null && !projectId.isEmpty()) {
-                // 设置上下文信息
-                DatabaseContext.setProjectId(projectId);
-                
-                // 获取数据源键和表后缀
-                String dataSourceKey = shardingStrategy.getDataSourceKey(projectId);
-                String tableSuffix = shardingStrategy.getTableSuffix(projectId);
-                
-                DatabaseContext.setDataSourceKey(dataSourceKey);
-                DatabaseContext.setTableSuffix(tableSuffix);
-                
-                log.debug("设置分片上下文 - 项目ID: {}, 数据源: {}, 表后缀: {}", 
-                         projectId, dataSourceKey, tableSuffix);
-            }
-            
-            // 执行目标方法
             return point.proceed();
-            
         } finally {
-            // 清理上下文（如果是最外层调用）
-            // 注意：这里不直接清理，让业务方法执行完成后再清理
-            // DatabaseContext.clear();
+            ShardingContext.pop(previous);
         }
     }
     
     /**
      * 解析项目ID
+     * 提取方式按方法缓存，只在首次调用时解析
      */
     private String parseProjectId(ProceedingJoinPoint point, ShardingDataSource shardingDataSource) {
-        // 如果注解中指定了值，直接返回
-        if (shardingDataSource.value() != null && !shardingDataSource.value().isEmpty()) {
-            return shardingDataSource.value();
-        }
-        
-        // 从方法参数中获取
-        MethodSignature signature = (MethodSignature) point.getSignature();
-        Method method = signature.getMethod();
-        Parameter[] parameters = method.getParameters();
-        Object[] args = point.getArgs();
+        Method method = ((MethodSignature) point.getSignature()).getMethod();
         
-        String paramName = shardingDataSource.projectIdParam();
-        
-        // 查找指定名称的参数
-        for (int i = 0; i < parameters.length; i++) {
-            if (paramName.equals(parameters[i].getName())) {
-                Object value = args[i];
-                return value != null ? value.toString() : null;
-            }
+        ProjectIdExtractor extractor = extractorCache.get(method);
+        if (extractor == null) {
+            extractor = extractorCache.computeIfAbsent(method, m -> ProjectIdExtractors.compile(m, shardingDataSource));
         }
-        
-        // 如果没找到指定参数名，查找projectId参数
-        for (int i = 0; i < parameters.length; i++) {
-            if ("projectId".equals(parameters[i].getName())) {
-                Object value = args[i];
-                return value != null ? value.toString() : null;
-            }
-        }
-        
-        // 从第一个String类型参数中获取（作为兜底策略）
-        for (Object arg : args) {
-            if (arg instanceof String) {
-                return (String) arg;
-            }
-        }
-        
-        log.warn("无法从方法参数中获取项目ID: {}", method.getName());
-        return null;
+        return extractor.extract(point.getArgs());
     }
 }
\ No newline at end of file
@@ -1,22 +1,26 @@
 package com.example.sharding.interceptor;
 
+import com.baomidou.mybatisplus.core.toolkit.PluginUtils;
 import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
-import com.example.sharding.context.DatabaseContext;
-import com.example.sharding.context.TableContext;
+import com.example.sharding.context.ShardingContext;
+import com.example.sharding.metadata.LogicalTableRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 
+import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 动态表名拦截器
- * 在SQL执行前动态替换表名
+ * 在SQL执行前动态替换表名，只改写逻辑表注册中心中的分片表
  * 
  * @author example
  */
@@ -24,80 +28,93 @@ import java.util.regex.Pattern;
 public class DynamicTableInterceptor implements InnerInterceptor {
     
     /**
-     * 表名匹配正则（匹配FROM、JOIN、INTO、UPDATE等后面的表名）
+     * 单个语句最多缓存的SQL形态数（动态SQL如foreach会产生多种形态）
      */
-    private static final Pattern TABLE_PATTERN = Pattern.compile(
-            "(?i)\\b(?:FROM|JOIN|INTO|UPDATE)\\s+([a-zA-Z_][a-zA-Z0-9_]*)",
-            Pattern.CASE_INSENSITIVE
-    );
+    private static final int MAX_PLANS_PER_STATEMENT = 256;
     
+    /**
+     * 改写计划缓存
+     * key: MappedStatement ID, value: (SQL -> 改写计划)
+     */
+    private final Map<String, Map<String, TableRewritePlan>> planCache = new ConcurrentHashMap<>();
+    
+    private final LogicalTableRegistry logicalTableRegistry;
+    
+    public DynamicTableInterceptor(LogicalTableRegistry logicalTableRegistry) {
+        this.logicalTableRegistry = logicalTableRegistry;
+    }
+    
+    /**
+     * 查询语句：直接改写即将执行的BoundSql
+     */
     @Override
     public void beforeQuery(Executor executor, MappedStatement ms, Object parameter, 
                            RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
-        processTableName(boundSql);
+        String tableSuffix = ShardingContext.getTableSuffix();
+        if (tableSuffix == null || tableSuffix.isEmpty()) {
+            log.debug("无表后缀，不进行表名替换");
+            return;
+        }
+        
+        processTableName(ms, PluginUtils.mpBoundSql(boundSql), tableSuffix);
     }
     
+    /**
+     * 增删改语句：在StatementHandler准备阶段改写其持有的BoundSql
+     * 避免在beforeUpdate中再次调用ms.getBoundSql()重复计算动态SQL
+     */
     @Override
-    public void beforeUpdate(Executor executor, MappedStatement ms, Object parameter) throws SQLException {
-        BoundSql boundSql = ms.getBoundSql(parameter);
-        processTableName(boundSql);
+    public void beforePrepare(StatementHandler sh, Connection connection, Integer transactionTimeout) {
+        String tableSuffix = ShardingContext.getTableSuffix();
+        if (tableSuffix == null || tableSuffix.isEmpty()) {
+            log.debug("无表后缀，不进行表名替换");
+            return;
+        }
+        
+        PluginUtils.MPStatementHandler mpSh = PluginUtils.mpStatementHandler(sh);
+        MappedStatement ms = mpSh.mappedStatement();
+        SqlCommandType sct = ms.getSqlCommandType();
+        if (sct == SqlCommandType.INSERT || sct == SqlCommandType.UPDATE || sct == SqlCommandType.DELETE) {
+            processTableName(ms, mpSh.mPBoundSql(), tableSuffix);
+        }
     }
     
     /**
      * 处理表名替换
      */
-    private void processTableName(BoundSql boundSql) {
-        String originalSql = boundSql.getSql();
-        String tableSuffix = DatabaseContext.getTableSuffix();
+    private void processTableName(MappedStatement ms, PluginUtils.MPBoundSql mpBoundSql, String tableSuffix) {
+        String originalSql = mpBoundSql.sql();
         
-        if (tableSuffix == null || tableSuffix.isEmpty()) {
-            log.debug("无表后缀，不进行表名替换");
+        // 按缓存的改写计划填充表后缀，不涉及分片表的语句直接跳过
+        TableRewritePlan plan = getPlan(ms.getId(), originalSql);
+        if (plan.isEmpty()) {
             return;
         }
+        String newSql = plan.rewrite(tableSuffix);
         
-        // 使用正则表达式替换表名
-        String newSql = replaceTableNames(originalSql, tableSuffix);
-        
-        if (!originalSql.equals(newSql)) {
-            log.debug("SQL表名替换:\n原始SQL: {}\n新SQL: {}", originalSql, newSql);
-            
-            // 通过反射修改BoundSql中的SQL
-            try {
-                java.lang.reflect.Field field = boundSql.getClass().getDeclaredField("sql");
-                field.setAccessible(true);
-                field.set(boundSql, newSql);
-            } catch (Exception e) {
-                log.error("修改SQL失败", e);
-            }
-        }
+        log.debug("SQL表名替换:\n原始SQL: {}\n新SQL: {}", originalSql, newSql);
+        mpBoundSql.sql(newSql);
     }
     
     /**
-     * 替换SQL中的表名
+     * 获取SQL的改写计划，首次出现时解析并缓存
      */
-    private String replaceTableNames(String sql, String tableSuffix) {
-        Matcher matcher = TABLE_PATTERN.matcher(sql);
-        StringBuffer sb = new StringBuffer();
-        
-        while (matcher.find()) {
-            String tableName = matcher.group(1);
-            String actualTableName;
-            
-            // 检查是否已经有后缀
-            if (tableName.endsWith("_" + tableSuffix)) {
-                actualTableName = tableName;
-            } else {
-                actualTableName = tableName + "_" + tableSuffix;
-                // 记录表名映射
-                TableContext.setTableName(tableName, actualTableName);
-            }
-            
-            // 替换表名
-            String replacement = matcher.group(0).replace(tableName, actualTableName);
-            matcher.appendReplacement(sb, replacement);
+    private TableRewritePlan getPlan(String statementId, String sql) {
+        Map<String, TableRewritePlan> plans = planCache.get(statementId);
+        if (plans == null) {
+            plans = planCache.computeIfAbsent(statementId, k -> new ConcurrentHashMap<>());
+        }
+        TableRewritePlan plan = plans.get(sql);
+        if (plan != null) {
+            return plan;
         }
-        matcher.appendTail(sb);
         
-        return sb.toString();
+        plan = TableRewritePlan.compile(sql, logicalTableRegistry::isSharded);
+        if (plans.size() < MAX_PLANS_PER_STATEMENT) {
+            plans.putIfAbsent(sql, plan);
+        } else {
+            log.debug("语句[{}]的SQL形态过多，改写计划不再缓存", statementId);
+        }
+        return plan;
     }
 }
\ No newline at end of file
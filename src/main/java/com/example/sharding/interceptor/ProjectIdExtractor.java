@@ -0,0 +1,24 @@
+package com.example.sharding.interceptor;
+
+/**
+ * 项目ID提取器
+ * 每个方法在首次调用时解析一次，之后直接从参数数组中提取项目ID
+ * 
+ * @author example
+ */
+@FunctionalInterface
+public interface ProjectIdExtractor {
+    
+    /**
+     * 无法提取项目ID
+     */
+    ProjectIdExtractor NONE = args -> null;
+    
+    /**
+     * 从方法参数中提取项目ID
+     * 
+     * @param args 方法参数
+     * @return 项目ID，无法提取时返回null
+     */
+    String extract(Object[] args);
+}
@@ -0,0 +1,205 @@
+package com.example.sharding.interceptor;
+
+import com.example.sharding.annotation.ShardingDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.SimpleEvaluationContext;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 项目ID提取器解析
+ * 按以下顺序为方法生成提取器：
+ * <ol>
+ *     <li>注解value：以#开头时为SpEL表达式（如#order.projectId），否则为固定项目ID</li>
+ *     <li>注解projectIdParam指定的参数，支持属性路径（如order.projectId）</li>
+ *     <li>名为projectId的参数</li>
+ *     <li>第一个带有getProjectId()的请求对象参数</li>
+ * </ol>
+ * 
+ * @author example
+ */
+@Slf4j
+final class ProjectIdExtractors {
+    
+    /**
+     * 简单属性路径表达式：#name.a.b、#p0.a、#a0
+     */
+    private static final Pattern SIMPLE_PATH = Pattern.compile("#([A-Za-z_$][\\w$]*)((?:\\.[A-Za-z_$][\\w$]*)*)");
+    
+    private static final Pattern INDEX_NAME = Pattern.compile("[ap](\\d+)");
+    
+    private static final String DEFAULT_PARAM = "projectId";
+    
+    private static final ParameterNameDiscoverer PARAMETER_NAME_DISCOVERER = new DefaultParameterNameDiscoverer();
+    
+    private static final SpelExpressionParser EXPRESSION_PARSER = new SpelExpressionParser();
+    
+    private ProjectIdExtractors() {
+    }
+    
+    /**
+     * 为方法生成项目ID提取器
+     */
+    static ProjectIdExtractor compile(Method method, ShardingDataSource shardingDataSource) {
+        String value = shardingDataSource.value();
+        if (value != null && !value.isEmpty()) {
+            if (value.startsWith("#")) {
+                return compileExpression(method, value);
+            }
+            return args -> value;
+        }
+        
+        String[] paramNames = PARAMETER_NAME_DISCOVERER.getParameterNames(method);
+        
+        ProjectIdExtractor extractor = compilePath(method, paramNames, shardingDataSource.projectIdParam());
+        if (extractor == null && !DEFAULT_PARAM.equals(shardingDataSource.projectIdParam())) {
+            extractor = compilePath(method, paramNames, DEFAULT_PARAM);
+        }
+        if (extractor == null) {
+            extractor = compileRequestBean(method);
+        }
+        if (extractor == null) {
+            log.warn("无法从方法参数中获取项目ID，不进行分片路由: {}", method);
+            return ProjectIdExtractor.NONE;
+        }
+        return extractor;
+    }
+    
+    /**
+     * 解析SpEL表达式，简单属性路径直接转换为参数下标和getter调用
+     */
+    private static ProjectIdExtractor compileExpression(Method method, String expression) {
+        String[] paramNames = PARAMETER_NAME_DISCOVERER.getParameterNames(method);
+        
+        Matcher matcher = SIMPLE_PATH.matcher(expression);
+        if (matcher.matches()) {
+            int index = indexOf(method, paramNames, matcher.group(1));
+            if (index >= 0) {
+                ProjectIdExtractor extractor = compileIndex(method, index, matcher.group(2));
+                if (extractor != null) {
+                    return extractor;
+                }
+            }
+        }
+        
+        Expression compiled = EXPRESSION_PARSER.parseExpression(expression);
+        return args -> {
+            EvaluationContext context = SimpleEvaluationContext.forReadOnlyDataBinding().build();
+            for (int i = 0; i < args.length; i++) {
+                if (paramNames != null) {
+                    context.setVariable(paramNames[i], args[i]);
+                }
+                context.setVariable("p" + i, args[i]);
+                context.setVariable("a" + i, args[i]);
+            }
+            Object result = compiled.getValue(context);
+            return result != null ? result.toString() : null;
+        };
+    }
+    
+    /**
+     * 解析参数名（可带属性路径），如projectId、order.projectId
+     */
+    private static ProjectIdExtractor compilePath(Method method, String[] paramNames, String path) {
+        int dot = path.indexOf('.');
+        String name = dot < 0 ? path : path.substring(0, dot);
+        int index = indexOf(method, paramNames, name);
+        if (index < 0) {
+            return null;
+        }
+        return compileIndex(method, index, dot < 0 ? "" : path.substring(dot));
+    }
+    
+    /**
+     * 按参数下标和属性路径（以.开头或为空）生成提取器
+     */
+    private static ProjectIdExtractor compileIndex(Method method, int index, String propertyPath) {
+        if (propertyPath.isEmpty()) {
+            return args -> {
+                Object value = args[index];
+                return value != null ? value.toString() : null;
+            };
+        }
+        
+        Method[] getters = resolveGetters(method.getParameterTypes()[index], propertyPath.substring(1).split("\\."));
+        if (getters == null) {
+            return null;
+        }
+        return args -> {
+            Object value = args[index];
+            for (Method getter : getters) {
+                if (value == null) {
+                    return null;
+                }
+                value = ReflectionUtils.invokeMethod(getter, value);
+            }
+            return value != null ? value.toString() : null;
+        };
+    }
+    
+    /**
+     * 查找第一个带有projectId属性的请求对象参数
+     */
+    private static ProjectIdExtractor compileRequestBean(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (BeanUtils.isSimpleValueType(types[i])) {
+                continue;
+            }
+            if (resolveGetters(types[i], new String[]{DEFAULT_PARAM}) != null) {
+                return compileIndex(method, i, "." + DEFAULT_PARAM);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 按声明类型解析属性路径上的getter
+     */
+    private static Method[] resolveGetters(Class<?> type, String[] properties) {
+        List<Method> getters = new ArrayList<>(properties.length);
+        Class<?> current = type;
+        for (String property : properties) {
+            PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(current, property);
+            if (descriptor == null || descriptor.getReadMethod() == null) {
+                return null;
+            }
+            Method getter = descriptor.getReadMethod();
+            ReflectionUtils.makeAccessible(getter);
+            getters.add(getter);
+            current = getter.getReturnType();
+        }
+        return getters.toArray(new Method[0]);
+    }
+    
+    /**
+     * 按参数名或p0/a0形式的下标查找参数位置
+     */
+    private static int indexOf(Method method, String[] paramNames, String name) {
+        if (paramNames != null) {
+            for (int i = 0; i < paramNames.length; i++) {
+                if (name.equals(paramNames[i])) {
+                    return i;
+                }
+            }
+        }
+        Matcher matcher = INDEX_NAME.matcher(name);
+        if (matcher.matches()) {
+            int index = Integer.parseInt(matcher.group(1));
+            return index < method.getParameterCount() ? index : -1;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.sharding.interceptor;
+
+import com.example.sharding.context.QueryDeadlineContext;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+
+import java.sql.Connection;
+import java.sql.SQLTimeoutException;
+
+/**
+ * 语句超时拦截器
+ * 当前线程设置了截止时间时，把剩余时间作为语句的超时时间(秒)：MyBatis取其与语句自身timeout中较小者设置到Statement，
+ * 超时后由驱动取消服务端查询，不会在截止时间之后继续占用连接
+ *
+ * @author example
+ */
+@Intercepts({
+        @Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class})
+})
+public class QueryTimeoutInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Long remaining = QueryDeadlineContext.remainingMillis();
+        if (remaining != null) {
+            if (remaining <= 0) {
+                throw new SQLTimeoutException("查询已超过截止时间");
+            }
+            int seconds = (int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000);
+            Object[] args = invocation.getArgs();
+            Integer transactionTimeout = (Integer) args[1];
+            args[1] = transactionTimeout == null ? seconds : Math.min(transactionTimeout, seconds);
+        }
+        return invocation.proceed();
+    }
+}
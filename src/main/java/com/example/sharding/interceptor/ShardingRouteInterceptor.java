@@ -0,0 +1,91 @@
+package com.example.sharding.interceptor;
+
+import cn.hutool.core.util.StrUtil;
+import com.example.sharding.context.ShardingContext;
+import com.example.sharding.context.ShardingRoute;
+import com.example.sharding.strategy.ShardingStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * 请求级分片路由拦截器
+ * 每个HTTP请求只根据路径变量{projectId}或请求头解析一次路由，并在整个请求期间绑定；
+ * 请求内同一项目的@ShardingDataSource方法调用不再重复解析路由
+ * 
+ * @author example
+ */
+@Slf4j
+public class ShardingRouteInterceptor implements AsyncHandlerInterceptor {
+    
+    /**
+     * 保存外层路由的请求属性
+     */
+    private static final String PREVIOUS_ROUTE_ATTRIBUTE = ShardingRouteInterceptor.class.getName() + ".PREVIOUS_ROUTE";
+    
+    private static final String PROJECT_ID_VARIABLE = "projectId";
+    
+    private final ShardingStrategy shardingStrategy;
+    
+    private final String headerName;
+    
+    public ShardingRouteInterceptor(ShardingStrategy shardingStrategy, String headerName) {
+        this.shardingStrategy = shardingStrategy;
+        this.headerName = headerName;
+    }
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String projectId = resolveProjectId(request);
+        if (StrUtil.isBlank(projectId)) {
+            return true;
+        }
+        
+        ShardingRoute route = shardingStrategy.resolve(projectId);
+        ShardingRoute previous = ShardingContext.push(route);
+        request.setAttribute(PREVIOUS_ROUTE_ATTRIBUTE, previous == null ? ShardingRouteInterceptor.class : previous);
+        log.debug("绑定请求分片路由: {}", route);
+        return true;
+    }
+    
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        unbind(request);
+    }
+    
+    /**
+     * 异步请求释放当前线程时同样需要解绑，异步派发回来时会重新执行preHandle
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        unbind(request);
+    }
+    
+    private void unbind(HttpServletRequest request) {
+        Object previous = request.getAttribute(PREVIOUS_ROUTE_ATTRIBUTE);
+        if (previous == null) {
+            return;
+        }
+        request.removeAttribute(PREVIOUS_ROUTE_ATTRIBUTE);
+        ShardingContext.pop(previous instanceof ShardingRoute ? (ShardingRoute) previous : null);
+    }
+    
+    /**
+     * 优先从路径变量获取项目ID，其次从请求头获取
+     */
+    @SuppressWarnings("unchecked")
+    private String resolveProjectId(HttpServletRequest request) {
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables != null) {
+            String projectId = variables.get(PROJECT_ID_VARIABLE);
+            if (projectId != null) {
+                return projectId;
+            }
+        }
+        return request.getHeader(headerName);
+    }
+}
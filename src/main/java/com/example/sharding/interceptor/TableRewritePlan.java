@@ -0,0 +1,127 @@
+package com.example.sharding.interceptor;
+
+import com.baomidou.mybatisplus.core.toolkit.TableNameParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 表名改写计划
+ * SQL只解析一次，拆分为静态片段和表名槽位，执行时按表后缀直接拼接
+ *
+ * @author example
+ */
+public final class TableRewritePlan {
+
+    /**
+     * 原始SQL
+     */
+    private final String sql;
+
+    /**
+     * 静态SQL片段，长度为槽位数+1
+     */
+    private final String[] segments;
+
+    /**
+     * 表名槽位（不含库名和反引号的逻辑表名）
+     */
+    private final String[] tableNames;
+
+    private TableRewritePlan(String sql, String[] segments, String[] tableNames) {
+        this.sql = sql;
+        this.segments = segments;
+        this.tableNames = tableNames;
+    }
+
+    /**
+     * 解析SQL生成改写计划，所有表名都作为槽位
+     */
+    public static TableRewritePlan compile(String sql) {
+        return compile(sql, tableName -> true);
+    }
+
+    /**
+     * 解析SQL生成改写计划，只有满足条件的表名作为槽位
+     * 基于MyBatis Plus的TableNameParser识别表名，支持逗号连接、子查询、反引号、DELETE FROM及库名前缀
+     */
+    public static TableRewritePlan compile(String sql, Predicate<String> shardedTable) {
+        List<TableNameParser.SqlToken> tokens = new ArrayList<>();
+        new TableNameParser(sql).accept(tokens::add);
+        Collections.sort(tokens);
+
+        List<String> segmentList = new ArrayList<>(tokens.size() + 1);
+        List<String> nameList = new ArrayList<>(tokens.size());
+        int last = 0;
+        for (TableNameParser.SqlToken token : tokens) {
+            int start = token.getStart();
+            int end = token.getEnd();
+
+            // 跳过库名前缀，只改写表名部分
+            int dot = sql.lastIndexOf('.', end - 1);
+            if (dot >= start) {
+                start = dot + 1;
+            }
+            // 去掉表名两侧的反引号
+            if (end - start > 2 && sql.charAt(start) == '`' && sql.charAt(end - 1) == '`') {
+                start++;
+                end--;
+            }
+
+            String tableName = sql.substring(start, end);
+            if (!shardedTable.test(tableName)) {
+                continue;
+            }
+
+            segmentList.add(sql.substring(last, start));
+            nameList.add(tableName);
+            last = end;
+        }
+        segmentList.add(sql.substring(last));
+
+        return new TableRewritePlan(sql, segmentList.toArray(new String[0]), nameList.toArray(new String[0]));
+    }
+
+    /**
+     * 是否不包含任何表名槽位
+     */
+    public boolean isEmpty() {
+        return tableNames.length == 0;
+    }
+
+    /**
+     * 按表后缀填充槽位生成实际SQL
+     */
+    public String rewrite(String tableSuffix) {
+        if (tableNames.length == 0) {
+            return sql;
+        }
+
+        StringBuilder sb = new StringBuilder(sql.length() + tableNames.length * (tableSuffix.length() + 1));
+        for (int i = 0; i < tableNames.length; i++) {
+            sb.append(segments[i]).append(tableNames[i]);
+            if (!hasSuffix(tableNames[i], tableSuffix)) {
+                sb.append('_').append(tableSuffix);
+            }
+        }
+        return sb.append(segments[tableNames.length]).toString();
+    }
+
+    /**
+     * 获取计划中的所有逻辑表名
+     */
+    public List<String> getTableNames() {
+        return Collections.unmodifiableList(Arrays.asList(tableNames));
+    }
+
+    /**
+     * 检查表名是否已经带有后缀
+     */
+    private static boolean hasSuffix(String tableName, String tableSuffix) {
+        int pos = tableName.length() - tableSuffix.length() - 1;
+        return pos > 0 && tableName.charAt(pos) == '_' && tableName.endsWith(tableSuffix);
+    }
+}
@@ -5,7 +5,9 @@ import com.example.sharding.entity.Order;
 import com.example.sharding.entity.vo.OrderDetailVO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -34,6 +36,16 @@ public interface OrderMapper extends BaseMapper<Order> {
     List<OrderDetailVO> selectOrderDetailByStatus(@Param("projectId") String projectId, 
                                                   @Param("status") Integer status);
 
+    /**
+     * 多表联查：跨项目查询指定状态的订单详情，在每张物理表上执行，projectIds为空时不按项目过滤；
+     * 每张物理表只取前limit行，逐行交给结果处理器，处理器可提前停止读取
+     */
+    void scanOrderDetailByStatusAcrossProjects(@Param("projectIds") Collection<String> projectIds,
+                                               @Param("status") Integer status,
+                                               @Param("sourceKey") String sourceKey,
+                                               @Param("limit") Integer limit,
+                                               ResultHandler<OrderDetailVO> resultHandler);
+
     /**
      * 批量更新订单状态
      */
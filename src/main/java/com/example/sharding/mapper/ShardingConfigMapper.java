@@ -6,6 +6,9 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * 分片配置Mapper
  * 
@@ -19,4 +22,16 @@ public interface ShardingConfigMapper extends BaseMapper<ShardingConfig> {
      */
     @Select("SELECT * FROM sharding_config WHERE project_id = #{projectId} AND deleted = 0")
     ShardingConfig selectByProjectId(@Param("projectId") String projectId);
+    
+    /**
+     * 查询指定时间之后变更的配置，包含已逻辑删除的记录，按变更先后排序
+     */
+    @Select("SELECT * FROM sharding_config WHERE update_time >= #{since} ORDER BY update_time, id")
+    List<ShardingConfig> selectChangedSince(@Param("since") LocalDateTime since);
+    
+    /**
+     * 查询配置的最新更新时间
+     */
+    @Select("SELECT MAX(update_time) FROM sharding_config")
+    LocalDateTime selectMaxUpdateTime();
 }
\ No newline at end of file
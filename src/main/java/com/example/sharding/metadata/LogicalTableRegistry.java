@@ -0,0 +1,229 @@
+package com.example.sharding.metadata;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.core.toolkit.TableNameParser;
+import com.example.sharding.annotation.ShardingTable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.annotation.PostConstruct;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * 逻辑表注册中心
+ * 启动时根据实体类的@TableName/@ShardingTable以及Mapper XML构建逻辑表清单，
+ * 只有分片表会被动态表名拦截器改写
+ *
+ * @author example
+ */
+@Slf4j
+@Component
+public class LogicalTableRegistry {
+
+    /**
+     * Mapper XML中的SQL语句标签
+     */
+    private static final String[] STATEMENT_TAGS = {"select", "insert", "update", "delete"};
+
+    /**
+     * SQL片段嵌套引用的最大深度，超过时视为循环引用
+     */
+    private static final int MAX_INCLUDE_DEPTH = 16;
+
+    @Autowired
+    private BeanFactory beanFactory;
+
+    @Value("${mybatis-plus.mapper-locations:classpath:mapper/*.xml}")
+    private String[] mapperLocations;
+
+    /**
+     * 逻辑表名 -> 表类型，启动完成后只读
+     */
+    private volatile Map<String, TableType> tables = Collections.emptyMap();
+
+    @PostConstruct
+    public void init() {
+        Map<String, TableType> registry = new LinkedHashMap<>();
+
+        registerEntityTables(registry);
+        registerMapperXmlTables(registry);
+
+        this.tables = Collections.unmodifiableMap(registry);
+        log.info("逻辑表注册完成: {}", registry);
+    }
+
+    /**
+     * 获取表类型，未注册的表返回null
+     */
+    public TableType getTableType(String tableName) {
+        return tables.get(normalize(tableName));
+    }
+
+    /**
+     * 是否为分片表
+     */
+    public boolean isSharded(String tableName) {
+        return tables.get(normalize(tableName)) == TableType.SHARDED;
+    }
+
+    /**
+     * 获取所有分片表
+     */
+    public Set<String> getShardedTables() {
+        Set<String> result = new LinkedHashSet<>();
+        tables.forEach((name, type) -> {
+            if (type == TableType.SHARDED) {
+                result.add(name);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 获取所有已注册的逻辑表
+     */
+    public Map<String, TableType> getAllTables() {
+        return tables;
+    }
+
+    /**
+     * 扫描实体类注册表
+     * 标注@ShardingTable的实体按注解类型注册，其余实体注册为全局表
+     */
+    private void registerEntityTables(Map<String, TableType> registry) {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(TableName.class));
+
+        for (String basePackage : AutoConfigurationPackages.get(beanFactory)) {
+            for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+                Class<?> entityClass = ClassUtils.resolveClassName(candidate.getBeanClassName(), getClass().getClassLoader());
+                TableName tableName = entityClass.getAnnotation(TableName.class);
+                ShardingTable shardingTable = entityClass.getAnnotation(ShardingTable.class);
+
+                if (shardingTable == null) {
+                    registry.put(normalize(tableName.value()), TableType.GLOBAL);
+                } else {
+                    String name = StrUtil.blankToDefault(shardingTable.tableName(), tableName.value());
+                    registry.put(normalize(name), shardingTable.type());
+                }
+            }
+        }
+    }
+
+    /**
+     * 扫描Mapper XML
+     * 与分片表出现在同一条语句中的未注册表（如JOIN的user_profile）必须位于同一分片，注册为分片表
+     */
+    private void registerMapperXmlTables(Map<String, TableType> registry) {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+
+            for (String location : mapperLocations) {
+                for (Resource resource : resolver.getResources(location)) {
+                    try (InputStream in = resource.getInputStream()) {
+                        registerStatementTables(builder.parse(in), registry, resource.getFilename());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("扫描Mapper XML注册逻辑表失败", e);
+        }
+    }
+
+    private void registerStatementTables(Document document, Map<String, TableType> registry, String fileName) {
+        String namespace = document.getDocumentElement().getAttribute("namespace");
+        Map<String, Element> fragments = new HashMap<>();
+        NodeList sqlNodes = document.getElementsByTagName("sql");
+        for (int i = 0; i < sqlNodes.getLength(); i++) {
+            Element fragment = (Element) sqlNodes.item(i);
+            fragments.put(fragment.getAttribute("id"), fragment);
+        }
+
+        for (String tag : STATEMENT_TAGS) {
+            NodeList statements = document.getElementsByTagName(tag);
+            for (int i = 0; i < statements.getLength(); i++) {
+                Element statement = (Element) statements.item(i);
+                StringBuilder sql = new StringBuilder();
+                appendSql(statement, namespace, fragments, sql, 0, fileName);
+                Collection<String> statementTables = new TableNameParser(sql.toString()).tables();
+
+                boolean sharded = statementTables.stream()
+                        .anyMatch(name -> registry.get(normalize(name)) == TableType.SHARDED);
+
+                for (String name : statementTables) {
+                    String key = normalize(name);
+                    if (registry.containsKey(key)) {
+                        continue;
+                    }
+                    if (sharded) {
+                        registry.put(key, TableType.SHARDED);
+                        log.info("表[{}]与分片表在{}#{}中关联使用，注册为分片表", key, fileName, statement.getAttribute("id"));
+                    } else {
+                        log.warn("表[{}]在{}#{}中使用但未注册，将不进行表名改写", key, fileName, statement.getAttribute("id"));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 拼接语句的SQL文本，<include>替换为同一命名空间中对应<sql>片段的内容；
+     * 其他命名空间的片段和含${}的refid无法在此解析，跳过
+     */
+    private void appendSql(Node node, String namespace, Map<String, Element> fragments,
+                           StringBuilder sql, int depth, String fileName) {
+        NodeList children = node.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child.getNodeType() == Node.TEXT_NODE || child.getNodeType() == Node.CDATA_SECTION_NODE) {
+                sql.append(child.getNodeValue());
+            } else if (child.getNodeType() == Node.ELEMENT_NODE) {
+                if (!"include".equals(child.getNodeName())) {
+                    appendSql(child, namespace, fragments, sql, depth, fileName);
+                    continue;
+                }
+                String refid = ((Element) child).getAttribute("refid");
+                if (refid.startsWith(namespace + ".")) {
+                    refid = refid.substring(namespace.length() + 1);
+                }
+                Element fragment = fragments.get(refid);
+                if (fragment == null || depth >= MAX_INCLUDE_DEPTH) {
+                    log.warn("{}中的SQL片段[{}]无法解析，其中的表不参与逻辑表注册", fileName, refid);
+                    continue;
+                }
+                sql.append(' ');
+                appendSql(fragment, namespace, fragments, sql, depth + 1, fileName);
+                sql.append(' ');
+            }
+        }
+    }
+
+    /**
+     * 统一表名格式：去掉库名前缀和反引号，转为小写
+     */
+    private static String normalize(String tableName) {
+        String name = tableName.substring(tableName.lastIndexOf('.') + 1);
+        return StrUtil.unWrap(name, '`').toLowerCase(Locale.ROOT);
+    }
+}
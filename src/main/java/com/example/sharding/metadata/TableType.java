@@ -0,0 +1,24 @@
+package com.example.sharding.metadata;
+
+/**
+ * 逻辑表类型
+ * 
+ * @author example
+ */
+public enum TableType {
+    
+    /**
+     * 分片表：按项目路由到对应分库，表名追加后缀
+     */
+    SHARDED,
+    
+    /**
+     * 广播表：每个分库中都存在且内容一致，表名不改写
+     */
+    BROADCAST,
+    
+    /**
+     * 全局表：只存在于默认库（如sharding_config），表名不改写
+     */
+    GLOBAL
+}
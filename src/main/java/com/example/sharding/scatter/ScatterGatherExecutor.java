@@ -0,0 +1,357 @@
+package com.example.sharding.scatter;
+
+import cn.hutool.core.thread.ThreadUtil;
+import com.example.sharding.context.QueryDeadlineContext;
+import com.example.sharding.context.ShardingContext;
+import com.example.sharding.context.ShardingRoute;
+import com.example.sharding.datasource.DataSourceRegistry;
+import com.example.sharding.metadata.LogicalTableRegistry;
+import com.example.sharding.schema.PhysicalTableLocator;
+import com.example.sharding.service.TableAutoCreateService;
+import com.example.sharding.strategy.ShardingStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ResultHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * 跨分片查询执行器
+ * 在每张相关的物理表上执行同一条Mapper语句：不同分片并行执行，同一分片同时执行的查询不超过per-shard-concurrency；
+ * 总耗时取决于最慢的分片而不是各项目耗时之和；各物理表的结果已按语句的ORDER BY排序，LIMIT下推到每张物理表，
+ * 由{@link TopNCollector}保留全局前N行，不分页的查询同样受行数上限约束
+ *
+ * @author example
+ */
+@Slf4j
+@Component
+public class ScatterGatherExecutor {
+
+    @Autowired
+    private ShardingStrategy shardingStrategy;
+
+    @Autowired
+    private LogicalTableRegistry logicalTableRegistry;
+
+    @Autowired
+    private PhysicalTableLocator physicalTableLocator;
+
+    @Autowired
+    private DataSourceRegistry dataSourceRegistry;
+
+    @Autowired
+    private TableAutoCreateService tableAutoCreateService;
+
+    /**
+     * 同时执行的物理表查询总数
+     */
+    @Value("${sharding.scatter.parallelism:16}")
+    private int parallelism;
+
+    /**
+     * 每个分片同时执行的物理表查询数
+     */
+    @Value("${sharding.scatter.per-shard-concurrency:4}")
+    private int perShardConcurrency;
+
+    /**
+     * 一次跨分片查询的超时时间(毫秒)，各物理表语句以剩余时间作为查询超时
+     */
+    @Value("${sharding.scatter.timeout:30000}")
+    private long timeout;
+
+    /**
+     * 跨分片分页允许的最大offset+limit，也是不分页查询最多返回的行数，每张物理表最多读取这么多行
+     */
+    @Value("${sharding.scatter.max-page-rows:10000}")
+    private int maxPageRows;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1024),
+                ThreadUtil.newNamedThreadFactory("scatter-gather-", true));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 各分片库中的全部物理表，每张物理表对应一个不区分项目的路由
+     * 物理表取自内存中的表清单，不逐次查询information_schema；缺少任一关联表的目标跳过并记录
+     *
+     * @param logicalTables 查询涉及的逻辑表，第一个为驱动表，按驱动表的物理表确定目标
+     */
+    public List<ShardingRoute> allTables(List<String> logicalTables) {
+        String drivingTable = logicalTables.get(0);
+        List<ShardingRoute> targets = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (String dataSourceKey : dataSourceRegistry.getCatalog()) {
+            Set<String> existing;
+            try {
+                existing = tableAutoCreateService.getExistingTables(dataSourceKey);
+            } catch (Exception e) {
+                log.warn("读取数据源[{}]的表清单失败，跨分片查询跳过该分片: {}", dataSourceKey, e.getMessage());
+                continue;
+            }
+            List<String> tables = existing.stream()
+                    .filter(table -> physicalTableLocator.isPhysicalTableOf(table, drivingTable))
+                    .sorted()
+                    .collect(Collectors.toList());
+            for (String table : tables) {
+                String tableSuffix = table.length() > drivingTable.length() ? table.substring(drivingTable.length() + 1) : "";
+                ShardingRoute route = ShardingRoute.of(null, dataSourceKey, tableSuffix, logicalTableRegistry.getShardedTables());
+                addIfComplete(targets, missing, route, logicalTables, existing::contains);
+            }
+        }
+        reportMissing(missing);
+        return targets;
+    }
+
+    /**
+     * 指定项目所在的物理表，多个项目共用同一张物理表时只查询一次
+     * 表清单中没有的表再到分片库确认一次（可能由其他节点刚刚创建），仍缺少任一关联表的目标跳过并记录
+     *
+     * @param logicalTables 查询涉及的逻辑表
+     */
+    public List<ShardingRoute> projectTables(Collection<String> projectIds, List<String> logicalTables) {
+        Map<String, ShardingRoute> routes = new LinkedHashMap<>();
+        for (String projectId : projectIds) {
+            ShardingRoute route = shardingStrategy.resolve(projectId);
+            routes.putIfAbsent(route.getDataSourceKey() + ":" + route.getTableSuffix(), route);
+        }
+
+        List<ShardingRoute> targets = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (ShardingRoute route : routes.values()) {
+            String dataSourceKey = route.getDataSourceKey();
+            Set<String> existing;
+            try {
+                existing = tableAutoCreateService.getExistingTables(dataSourceKey);
+            } catch (Exception e) {
+                existing = Collections.emptySet();
+            }
+            Set<String> cached = existing;
+            addIfComplete(targets, missing, route, logicalTables,
+                    table -> cached.contains(table) || tableAutoCreateService.isTableExists(table, dataSourceKey));
+        }
+        reportMissing(missing);
+        return targets;
+    }
+
+    private static void addIfComplete(List<ShardingRoute> targets, List<String> missing, ShardingRoute route,
+                                      List<String> logicalTables, Predicate<String> exists) {
+        List<String> absent = new ArrayList<>();
+        for (String logicalTable : logicalTables) {
+            String table = route.getActualTableName(logicalTable);
+            if (!exists.test(table)) {
+                absent.add(route.getDataSourceKey() + "." + table);
+            }
+        }
+        if (absent.isEmpty()) {
+            targets.add(route);
+        } else {
+            missing.addAll(absent);
+        }
+    }
+
+    private static void reportMissing(List<String> missing) {
+        if (!missing.isEmpty()) {
+            log.warn("跨分片查询跳过缺少物理表的目标，缺少的表: {}", missing);
+        }
+    }
+
+    /**
+     * 跨分片查询全部结果：与分页查询走同一条前N行路径，LIMIT max-page-rows+1下推到每张物理表，
+     * 内存中最多保留max-page-rows+1行；结果超过max-page-rows行时失败，由调用方改用分页查询
+     *
+     * @param targets    物理表路由
+     * @param query      查询，在目标路由范围内执行，结果须已按comparator排序
+     * @param comparator 与查询语句ORDER BY一致的全序排序
+     * @return 全局有序结果
+     * @throws IllegalArgumentException 结果超过max-page-rows行
+     * @throws IllegalStateException    任一物理表查询失败或超时
+     */
+    public <T> List<T> queryAll(List<ShardingRoute> targets, PageQuery<T> query, Comparator<? super T> comparator) {
+        List<T> rows = collectTopN(targets, query, comparator, maxPageRows + 1, 0);
+        if (rows.size() > maxPageRows) {
+            throw new IllegalArgumentException("跨分片查询结果超过" + maxPageRows + "行，请使用分页查询");
+        }
+        return rows;
+    }
+
+    /**
+     * 跨分片分页查询：每张物理表只查询前offset+limit行（LIMIT下推），各表的行进入共享的有界堆，
+     * 某张表的行已无法进入全局前offset+limit行时停止读取该表，内存占用与页大小而不是总行数成正比
+     *
+     * @param targets    物理表路由
+     * @param query      查询，在目标路由范围内执行，结果须已按comparator排序
+     * @param comparator 与查询语句ORDER BY一致的全序排序，不同物理表中排序字段相同的行以来源物理表区分，
+     *                   否则同分的行由各表线程的先后决定去留，相邻两页之间可能重复或遗漏
+     * @param offset     跳过的行数
+     * @param limit      返回的行数
+     * @throws IllegalArgumentException 分页参数不合法或超过单页上限
+     * @throws IllegalStateException    任一物理表查询失败或超时
+     */
+    public <T> List<T> queryPage(List<ShardingRoute> targets, PageQuery<T> query,
+                                 Comparator<? super T> comparator, int offset, int limit) {
+        if (offset < 0 || limit <= 0) {
+            throw new IllegalArgumentException("分页参数不合法，offset: " + offset + "，limit: " + limit);
+        }
+        if ((long) offset + limit > maxPageRows) {
+            throw new IllegalArgumentException("跨分片分页的offset+limit不能超过" + maxPageRows);
+        }
+        return collectTopN(targets, query, comparator, offset + limit, offset);
+    }
+
+    private <T> List<T> collectTopN(List<ShardingRoute> targets, PageQuery<T> query,
+                                    Comparator<? super T> comparator, int topN, int offset) {
+        long start = System.currentTimeMillis();
+        TopNCollector<T> collector = new TopNCollector<>(comparator, topN);
+        LongAdder read = new LongAdder();
+        LongAdder stopped = new LongAdder();
+        executeAll(targets, start + timeout, index -> query.scan(sourceKey(targets.get(index)), topN, context -> {
+            read.increment();
+            if (!collector.offer(context.getResultObject())) {
+                // 该表之后的行排序更靠后，不会再进入前N行
+                stopped.increment();
+                context.stop();
+            }
+        }));
+
+        List<T> rows = collector.toList(offset);
+        log.debug("跨分片查询完成，物理表数: {}，读取行数: {}，提前结束的表: {}，返回行数: {}，耗时{}ms",
+                targets.size(), read.sum(), stopped.sum(), rows.size(), System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    /**
+     * 物理表的稳定标识，不随目标列表的顺序变化，相同的物理表在每次查询中排序位置相同
+     */
+    private static String sourceKey(ShardingRoute route) {
+        return route.getDataSourceKey() + ":" + route.getTableSuffix();
+    }
+
+    /**
+     * 在每个路由范围内执行任务：不同分片并行，每个分片最多per-shard-concurrency个任务从该分片的队列中取物理表执行，
+     * 任一失败时其余任务不再取新表；任务中的语句以截止时间的剩余时间作为查询超时，超时或失败时取消仍在执行的任务
+     *
+     * @param deadline 截止时间
+     * @param task     参数为物理表在targets中的下标
+     */
+    private void executeAll(List<ShardingRoute> targets, long deadline, IntConsumer task) {
+        Map<String, Queue<Integer>> shards = new LinkedHashMap<>();
+        for (int i = 0; i < targets.size(); i++) {
+            shards.computeIfAbsent(targets.get(i).getDataSourceKey(), k -> new ConcurrentLinkedQueue<>()).add(i);
+        }
+
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (Queue<Integer> indexes : shards.values()) {
+                int workerCount = Math.min(Math.max(1, perShardConcurrency), indexes.size());
+                for (int i = 0; i < workerCount; i++) {
+                    workers.add(executor.submit(() -> {
+                        Integer index;
+                        while (!failed.get() && !Thread.currentThread().isInterrupted()
+                                && (index = indexes.poll()) != null) {
+                            execute(targets.get(index), index, task, failed, deadline);
+                        }
+                    }));
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            cancel(workers, failed);
+            throw new IllegalStateException("跨分片查询线程池已满，请稍后重试", e);
+        }
+
+        try {
+            for (Future<?> worker : workers) {
+                worker.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException e) {
+            cancel(workers, failed);
+            throw timeoutException(targets);
+        } catch (InterruptedException e) {
+            cancel(workers, failed);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("跨分片查询被中断", e);
+        } catch (ExecutionException e) {
+            cancel(workers, failed);
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException("跨分片查询失败", cause);
+        }
+    }
+
+    /**
+     * 取消仍在执行的任务：等待连接的任务被中断，执行中的语句由查询超时在服务端取消
+     */
+    private static void cancel(List<Future<?>> workers, AtomicBoolean failed) {
+        failed.set(true);
+        for (Future<?> worker : workers) {
+            worker.cancel(true);
+        }
+    }
+
+    private IllegalStateException timeoutException(List<ShardingRoute> targets) {
+        return new IllegalStateException("跨分片查询超时(" + timeout + "ms)，物理表数: " + targets.size());
+    }
+
+    private void execute(ShardingRoute route, int index, IntConsumer task, AtomicBoolean failed, long deadline) {
+        ShardingRoute previous = ShardingContext.push(route);
+        Long previousDeadline = QueryDeadlineContext.enter(deadline);
+        try {
+            task.accept(index);
+        } catch (RuntimeException e) {
+            failed.set(true);
+            log.warn("跨分片查询在{}上失败: {}", route, e.getMessage());
+            throw e;
+        } finally {
+            QueryDeadlineContext.exit(previousDeadline);
+            ShardingContext.pop(previous);
+        }
+    }
+
+    /**
+     * 跨分片查询在一张物理表上的执行
+     */
+    @FunctionalInterface
+    public interface PageQuery<T> {
+
+        /**
+         * @param sourceKey 来源物理表的稳定标识(数据源键:表后缀)，用作排序的最后一级
+         * @param rows      下推到该表的行数
+         * @param handler   逐行处理器，可提前停止读取
+         */
+        void scan(String sourceKey, int rows, ResultHandler<T> handler);
+    }
+}
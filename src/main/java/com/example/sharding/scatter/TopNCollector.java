@@ -0,0 +1,62 @@
+package com.example.sharding.scatter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 跨分片分页的全局前N行
+ * 各物理表的查询线程共享同一个有界堆，堆顶为当前前N行中排序最靠后的一行；
+ * 堆已满且新行不比堆顶靠前时拒绝，由于每张表按同一排序返回，该表之后的行也不会进入前N，可以停止读取
+ * 排序须为全序：不同物理表中排序字段相同的行若比较为相等，谁进入前N取决于各表线程的先后，分页结果不稳定
+ *
+ * @author example
+ */
+public class TopNCollector<T> {
+
+    private final Comparator<? super T> comparator;
+
+    private final int capacity;
+
+    /**
+     * 按排序倒序的堆，堆顶为最靠后的一行
+     */
+    private final PriorityQueue<T> heap;
+
+    public TopNCollector(Comparator<? super T> comparator, int capacity) {
+        this.comparator = comparator;
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<>(Math.max(1, capacity), (a, b) -> comparator.compare(b, a));
+    }
+
+    /**
+     * 提交一行
+     *
+     * @return 是否进入当前前N行，返回false时同一物理表后续的行无需再读取
+     */
+    public synchronized boolean offer(T row) {
+        if (capacity <= 0) {
+            return false;
+        }
+        if (heap.size() < capacity) {
+            heap.add(row);
+            return true;
+        }
+        if (comparator.compare(row, heap.peek()) >= 0) {
+            return false;
+        }
+        heap.poll();
+        heap.add(row);
+        return true;
+    }
+
+    /**
+     * 按排序返回前N行中从offset开始的行
+     */
+    public synchronized List<T> toList(int offset) {
+        List<T> rows = new ArrayList<>(heap);
+        rows.sort(comparator);
+        return offset >= rows.size() ? new ArrayList<>() : new ArrayList<>(rows.subList(offset, rows.size()));
+    }
+}
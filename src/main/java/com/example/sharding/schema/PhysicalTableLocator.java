@@ -0,0 +1,114 @@
+package com.example.sharding.schema;
+
+import com.example.sharding.context.ShardingContext;
+import com.example.sharding.context.ShardingRoute;
+import com.example.sharding.datasource.DataSourceRegistry;
+import com.example.sharding.entity.ShardingConfig;
+import com.example.sharding.metadata.LogicalTableRegistry;
+import com.example.sharding.service.ShardingConfigService;
+import com.example.sharding.strategy.ProjectShardingStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 物理表定位
+ * 按逻辑表查找各分片库中实际存在的物理表（information_schema），并与分片配置表中各项目应有的物理表对照
+ *
+ * @author example
+ */
+@Slf4j
+@Component
+public class PhysicalTableLocator {
+
+    @Autowired
+    private DataSourceRegistry dataSourceRegistry;
+
+    @Autowired
+    private LogicalTableRegistry logicalTableRegistry;
+
+    @Autowired
+    private ShardingConfigService shardingConfigService;
+
+    @Autowired
+    private ProjectShardingStrategy projectShardingStrategy;
+
+    /**
+     * 查找逻辑表在各分片库中的物理表，每个数据源一次查询
+     * 物理表名为逻辑表名本身或"逻辑表名_后缀"，其他已注册逻辑表的同名前缀表不计入
+     *
+     * @return 数据源键 -> 物理表名，不可访问的数据源不在结果中
+     */
+    public Map<String, List<String>> locate(String logicalTable) {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (String dataSourceKey : dataSourceRegistry.getCatalog()) {
+            try {
+                List<String> tables = new JdbcTemplate(dataSourceRegistry.getDataSource(dataSourceKey)).queryForList(
+                        "SELECT table_name FROM information_schema.tables WHERE table_schema = DATABASE() "
+                                + "AND (table_name = ? OR table_name LIKE ?) ORDER BY table_name",
+                        String.class, logicalTable, likePattern(logicalTable));
+                tables.removeIf(table -> !isPhysicalTableOf(table, logicalTable));
+                result.put(dataSourceKey, tables);
+            } catch (Exception e) {
+                log.warn("查询数据源[{}]中逻辑表[{}]的物理表失败: {}", dataSourceKey, logicalTable, e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查询物理表时table_name LIKE使用的模式，匹配"逻辑表名_后缀"
+     */
+    public String likePattern(String logicalTable) {
+        return logicalTable.replace("_", "\\_") + "\\_%";
+    }
+
+    /**
+     * 物理表是否属于该逻辑表：表名为逻辑表名本身或"逻辑表名_后缀"，
+     * 且不属于以该逻辑表为前缀的其他已注册逻辑表（如order与order_info）
+     */
+    public boolean isPhysicalTableOf(String table, String logicalTable) {
+        if (table.equals(logicalTable)) {
+            return true;
+        }
+        if (!table.startsWith(logicalTable + "_")) {
+            return false;
+        }
+        for (String other : logicalTableRegistry.getAllTables().keySet()) {
+            if (other.length() > logicalTable.length() && other.startsWith(logicalTable)
+                    && (table.equals(other) || table.startsWith(other + "_"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 分片配置表中各项目应有的物理表
+     *
+     * @return 数据源键 -> 物理表名
+     */
+    public Map<String, Set<String>> expected(String logicalTable) {
+        Map<String, Set<String>> result = new LinkedHashMap<>();
+        List<ShardingConfig> configs;
+        ShardingRoute previous = ShardingContext.push(ShardingRoute.ofDataSource(ShardingRoute.DEFAULT_DATA_SOURCE_KEY));
+        try {
+            configs = shardingConfigService.list();
+        } finally {
+            ShardingContext.pop(previous);
+        }
+        for (ShardingConfig config : configs) {
+            ShardingRoute route = projectShardingStrategy.buildRoute(config);
+            result.computeIfAbsent(route.getDataSourceKey(), k -> new LinkedHashSet<>())
+                    .add(route.getActualTableName(logicalTable));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.sharding.schema;
+
+import com.example.sharding.context.ShardingRoute;
+import com.example.sharding.datasource.DataSourceRegistry;
+import com.example.sharding.metadata.LogicalTableRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 分片表结构漂移检查
+ * 定时比较各分片库中每张物理表的列（information_schema.columns）和索引（information_schema.statistics）
+ * 与逻辑表模板是否一致，报告缺失、多出和定义不同的列与索引，并可生成补齐缺失索引的DDL（只生成不执行）
+ * <p>
+ * 模板表为默认库中的逻辑表，默认库中没有时使用第一个包含该逻辑表的分片库中的同名表
+ *
+ * @author example
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sharding.schema-drift", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SchemaDriftDetector {
+
+    @Autowired
+    private DataSourceRegistry dataSourceRegistry;
+
+    @Autowired
+    private LogicalTableRegistry logicalTableRegistry;
+
+    @Autowired
+    private PhysicalTableLocator physicalTableLocator;
+
+    /**
+     * 是否生成补齐缺失索引的DDL
+     */
+    @Value("${sharding.schema-drift.generate-ddl:true}")
+    private boolean generateDdl;
+
+    /**
+     * 最近一次检查结果，只包含存在差异的物理表
+     */
+    private volatile List<Map<String, Object>> drifts = Collections.emptyList();
+
+    private volatile LocalDateTime lastCheckTime;
+
+    @Scheduled(initialDelayString = "${sharding.schema-drift.initial-delay:60000}",
+            fixedDelayString = "${sharding.schema-drift.interval:3600000}")
+    public void check() {
+        long start = System.currentTimeMillis();
+        List<Map<String, Object>> result = new ArrayList<>();
+        int checked = 0;
+        for (String logicalTable : logicalTableRegistry.getShardedTables()) {
+            checked += checkTable(logicalTable, result);
+        }
+        this.drifts = Collections.unmodifiableList(result);
+        this.lastCheckTime = LocalDateTime.now();
+        log.info("分片表结构检查完成，检查物理表{}张，存在差异{}张，耗时{}ms",
+                checked, result.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 最近一次检查结果
+     */
+    public Map<String, Object> getReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("lastCheckTime", lastCheckTime);
+        report.put("driftCount", drifts.size());
+        report.put("drifts", drifts);
+        return report;
+    }
+
+    /**
+     * 检查一个逻辑表的全部物理表，每个数据源查询一次列和一次索引
+     *
+     * @return 检查的物理表数
+     */
+    private int checkTable(String logicalTable, List<Map<String, Object>> result) {
+        Map<String, Map<String, TableSchema>> schemas = new LinkedHashMap<>();
+        for (String dataSourceKey : dataSourceRegistry.getCatalog()) {
+            try {
+                schemas.put(dataSourceKey, loadSchemas(dataSourceRegistry.getDataSource(dataSourceKey), logicalTable));
+            } catch (Exception e) {
+                log.warn("读取数据源[{}]中逻辑表[{}]的表结构失败: {}", dataSourceKey, logicalTable, e.getMessage());
+            }
+        }
+
+        String templateSource = ShardingRoute.DEFAULT_DATA_SOURCE_KEY;
+        TableSchema template = null;
+        try {
+            template = loadSchemas(dataSourceRegistry.getDataSource(templateSource), logicalTable).get(logicalTable);
+        } catch (Exception e) {
+            log.warn("读取默认库中模板表[{}]的表结构失败: {}", logicalTable, e.getMessage());
+        }
+        if (template == null) {
+            for (Map.Entry<String, Map<String, TableSchema>> entry : schemas.entrySet()) {
+                if (entry.getValue().containsKey(logicalTable)) {
+                    templateSource = entry.getKey();
+                    template = entry.getValue().get(logicalTable);
+                    break;
+                }
+            }
+        }
+        if (template == null) {
+            log.warn("找不到逻辑表[{}]的模板表，跳过结构检查", logicalTable);
+            return 0;
+        }
+
+        int checked = 0;
+        for (Map.Entry<String, Map<String, TableSchema>> entry : schemas.entrySet()) {
+            for (Map.Entry<String, TableSchema> table : entry.getValue().entrySet()) {
+                checked++;
+                Map<String, Object> drift = diff(template, table.getValue(), table.getKey(), generateDdl);
+                if (drift.isEmpty()) {
+                    continue;
+                }
+
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("dataSourceKey", entry.getKey());
+                item.put("table", table.getKey());
+                item.put("logicalTable", logicalTable);
+                item.put("template", templateSource + "." + logicalTable);
+                item.putAll(drift);
+                result.add(item);
+                log.warn("分片表结构与模板不一致: {}.{}，{}", entry.getKey(), table.getKey(), drift);
+            }
+        }
+        return checked;
+    }
+
+    /**
+     * 读取逻辑表在该数据源中全部物理表的列和索引
+     */
+    private Map<String, TableSchema> loadSchemas(DataSource dataSource, String logicalTable) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        String pattern = physicalTableLocator.likePattern(logicalTable);
+        Map<String, TableSchema> schemas = new LinkedHashMap<>();
+
+        jdbcTemplate.query("SELECT table_name, column_name, column_type, is_nullable FROM information_schema.columns "
+                        + "WHERE table_schema = DATABASE() AND (table_name = ? OR table_name LIKE ?) "
+                        + "ORDER BY table_name, ordinal_position",
+                rs -> {
+                    String table = rs.getString(1);
+                    if (physicalTableLocator.isPhysicalTableOf(table, logicalTable)) {
+                        schemas.computeIfAbsent(table, t -> new TableSchema())
+                                .columns.put(rs.getString(2), rs.getString(3) + ("YES".equals(rs.getString(4)) ? " NULL" : " NOT NULL"));
+                    }
+                }, logicalTable, pattern);
+
+        jdbcTemplate.query("SELECT table_name, index_name, non_unique, column_name, sub_part FROM information_schema.statistics "
+                        + "WHERE table_schema = DATABASE() AND (table_name = ? OR table_name LIKE ?) "
+                        + "ORDER BY table_name, index_name, seq_in_index",
+                rs -> {
+                    TableSchema schema = schemas.get(rs.getString(1));
+                    if (schema != null) {
+                        long subPart = rs.getLong(5);
+                        boolean prefix = !rs.wasNull();
+                        String column = "`" + rs.getString(4) + "`" + (prefix ? "(" + subPart + ")" : "");
+                        boolean unique = rs.getInt(3) == 0;
+                        schema.indexes.computeIfAbsent(rs.getString(2), name -> new Index(unique)).columns.add(column);
+                    }
+                }, logicalTable, pattern);
+        return schemas;
+    }
+
+    /**
+     * 比较物理表与模板的列和索引，一致时返回空
+     */
+    static Map<String, Object> diff(TableSchema template, TableSchema actual, String table, boolean generateDdl) {
+        Map<String, Object> drift = new LinkedHashMap<>();
+
+        List<String> missingColumns = new ArrayList<>();
+        List<String> changedColumns = new ArrayList<>();
+        template.columns.forEach((name, definition) -> {
+            String actualDefinition = actual.columns.get(name);
+            if (actualDefinition == null) {
+                missingColumns.add(name + " " + definition);
+            } else if (!actualDefinition.equals(definition)) {
+                changedColumns.add(name + ": " + actualDefinition + " -> " + definition);
+            }
+        });
+        List<String> extraColumns = new ArrayList<>(actual.columns.keySet());
+        extraColumns.removeAll(template.columns.keySet());
+
+        List<String> missingIndexes = new ArrayList<>();
+        List<String> changedIndexes = new ArrayList<>();
+        List<String> ddl = new ArrayList<>();
+        template.indexes.forEach((name, index) -> {
+            Index actualIndex = actual.indexes.get(name);
+            if (actualIndex == null) {
+                missingIndexes.add(name + " " + index);
+                ddl.add(index.toAddDdl(table, name));
+            } else if (!actualIndex.equals(index)) {
+                changedIndexes.add(name + ": " + actualIndex + " -> " + index);
+            }
+        });
+        List<String> extraIndexes = new ArrayList<>(actual.indexes.keySet());
+        extraIndexes.removeAll(template.indexes.keySet());
+
+        putIfNotEmpty(drift, "missingColumns", missingColumns);
+        putIfNotEmpty(drift, "extraColumns", extraColumns);
+        putIfNotEmpty(drift, "changedColumns", changedColumns);
+        putIfNotEmpty(drift, "missingIndexes", missingIndexes);
+        putIfNotEmpty(drift, "extraIndexes", extraIndexes);
+        putIfNotEmpty(drift, "changedIndexes", changedIndexes);
+        if (generateDdl) {
+            putIfNotEmpty(drift, "ddl", ddl);
+        }
+        return drift;
+    }
+
+    private static void putIfNotEmpty(Map<String, Object> map, String key, List<String> values) {
+        if (!values.isEmpty()) {
+            map.put(key, values);
+        }
+    }
+
+    /**
+     * 物理表结构
+     */
+    static final class TableSchema {
+
+        /**
+         * 列名 -> 类型和是否可空
+         */
+        final Map<String, String> columns = new LinkedHashMap<>();
+
+        /**
+         * 索引名 -> 索引定义
+         */
+        final Map<String, Index> indexes = new LinkedHashMap<>();
+    }
+
+    /**
+     * 索引定义
+     */
+    static final class Index {
+
+        final boolean unique;
+
+        /**
+         * 按索引内顺序排列的列，前缀索引带长度
+         */
+        final List<String> columns = new ArrayList<>();
+
+        Index(boolean unique) {
+            this.unique = unique;
+        }
+
+        String toAddDdl(String table, String name) {
+            String columnList = String.join(", ", columns);
+            if ("PRIMARY".equals(name)) {
+                return "ALTER TABLE `" + table + "` ADD PRIMARY KEY (" + columnList + ")";
+            }
+            return "ALTER TABLE `" + table + "` ADD " + (unique ? "UNIQUE " : "") + "INDEX `" + name + "` (" + columnList + ")";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Index)) {
+                return false;
+            }
+            Index other = (Index) o;
+            return unique == other.unique && columns.equals(other.columns);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(unique, columns);
+        }
+
+        @Override
+        public String toString() {
+            return (unique ? "UNIQUE " : "") + "(" + String.join(", ", columns) + ")";
+        }
+    }
+}
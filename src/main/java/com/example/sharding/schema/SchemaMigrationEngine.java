@@ -0,0 +1,377 @@
+package com.example.sharding.schema;
+
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
+import com.example.sharding.context.ShardingRoute;
+import com.example.sharding.datasource.DataSourceRegistry;
+import com.example.sharding.metadata.LogicalTableRegistry;
+import com.example.sharding.service.TableAutoCreateService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 分片表结构变更
+ * 将逻辑表的ALTER语句先应用到默认库中的模板表，再并行应用到各分片库的全部物理表：
+ * 总并发受parallelism限制，同一分片同时执行的ALTER不超过per-shard-concurrency；
+ * 每张物理表的进度记录在schema_migration表中，使用相同的变更ID重新提交时跳过已完成的表；
+ * 执行期间在默认库持有命名锁，集群内同一时间只有一个节点执行变更，模板表变更完成后各节点由配置变更监听使建表模板失效
+ *
+ * @author example
+ */
+@Slf4j
+@Component
+public class SchemaMigrationEngine {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_DONE = "DONE";
+    public static final String STATUS_FAILED = "FAILED";
+
+    /**
+     * 重复执行ALTER时的错误码：列已存在、索引已存在、要删除的列或索引不存在，视为已应用
+     */
+    private static final Set<Integer> ALREADY_APPLIED_ERRORS = new HashSet<>(Arrays.asList(1060, 1061, 1091));
+
+    /**
+     * 集群范围的变更锁
+     */
+    private static final String LOCK_NAME = "sharding:schema-migration";
+
+    @Autowired
+    private DataSourceRegistry dataSourceRegistry;
+
+    @Autowired
+    private PhysicalTableLocator physicalTableLocator;
+
+    @Autowired
+    private LogicalTableRegistry logicalTableRegistry;
+
+    @Autowired
+    private TableAutoCreateService tableAutoCreateService;
+
+    /**
+     * 同时执行ALTER的物理表总数
+     */
+    @Value("${sharding.migration.parallelism:8}")
+    private int parallelism;
+
+    /**
+     * 每个分片同时执行ALTER的物理表数
+     */
+    @Value("${sharding.migration.per-shard-concurrency:1}")
+    private int perShardConcurrency;
+
+    /**
+     * 本节点正在执行的变更ID，同一时间只执行一个变更，其他节点由命名锁排除
+     */
+    private final AtomicReference<String> running = new AtomicReference<>();
+
+    /**
+     * 提交结构变更，在后台线程中执行
+     *
+     * @param migrationId  变更ID，相同ID重新提交时继续未完成的表
+     * @param logicalTable 逻辑表名
+     * @param alterClause  ALTER TABLE之后的部分，如"ADD COLUMN remark VARCHAR(255)"
+     * @throws IllegalArgumentException 参数不合法或变更ID已用于其他语句
+     * @throws IllegalStateException    本节点或其他节点已有变更正在执行
+     */
+    public void submit(String migrationId, String logicalTable, String alterClause) {
+        if (StrUtil.isBlank(migrationId) || migrationId.length() > 64) {
+            throw new IllegalArgumentException("变更ID不能为空且不超过64个字符");
+        }
+        if (!logicalTableRegistry.isSharded(logicalTable)) {
+            throw new IllegalArgumentException("不是分片表: " + logicalTable);
+        }
+        if (StrUtil.isBlank(alterClause) || alterClause.contains(";")) {
+            throw new IllegalArgumentException("ALTER语句不合法: " + alterClause);
+        }
+        List<String> previousDdl = progressTemplate().queryForList(
+                "SELECT DISTINCT ddl FROM schema_migration WHERE migration_id = ?", String.class, migrationId);
+        if (!previousDdl.isEmpty() && !previousDdl.contains(alterClause)) {
+            throw new IllegalArgumentException("变更ID[" + migrationId + "]已用于其他语句: " + previousDdl);
+        }
+        if (!running.compareAndSet(null, migrationId)) {
+            throw new IllegalStateException("变更[" + running.get() + "]正在执行");
+        }
+        Connection lockConnection;
+        try {
+            lockConnection = acquireLock();
+        } catch (RuntimeException e) {
+            running.set(null);
+            throw e;
+        }
+
+        Thread thread = ThreadUtil.newThread(() -> {
+            try {
+                migrate(migrationId, logicalTable, alterClause);
+            } catch (Exception e) {
+                log.error("结构变更[{}]执行失败", migrationId, e);
+            } finally {
+                releaseLock(lockConnection);
+                running.set(null);
+            }
+        }, "schema-migration-" + migrationId);
+        thread.start();
+    }
+
+    /**
+     * 在默认库的独立连接上获取变更锁，其他节点正在执行变更时立即失败；
+     * 锁属于该连接的会话，变更结束前一直持有该连接
+     */
+    private Connection acquireLock() {
+        Connection connection = null;
+        try {
+            connection = dataSourceRegistry.getDataSource(ShardingRoute.DEFAULT_DATA_SOURCE_KEY).getConnection();
+            try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+                ps.setString(1, LOCK_NAME);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next() && rs.getInt(1) == 1) {
+                        return connection;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw new IllegalStateException("获取结构变更锁失败: " + e.getMessage(), e);
+        }
+        closeQuietly(connection);
+        throw new IllegalStateException("其他节点正在执行结构变更");
+    }
+
+    private void releaseLock(Connection connection) {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            // 连接断开时锁随会话释放
+            log.warn("释放结构变更锁失败: {}", e.getMessage());
+        } finally {
+            closeQuietly(connection);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("关闭连接失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 指定时间之后完成的模板表变更，供各节点使本地缓存的建表模板失效
+     *
+     * @return 逻辑表名 -> 最近一次模板表变更完成的时间（数据库时钟）
+     */
+    public Map<String, LocalDateTime> listTemplateChangesSince(LocalDateTime since) {
+        Map<String, LocalDateTime> changes = new LinkedHashMap<>();
+        progressTemplate().query("SELECT logical_table, MAX(update_time) FROM schema_migration "
+                        + "WHERE data_source_key = ? AND status = ? AND update_time >= ? GROUP BY logical_table",
+                rs -> {
+                    changes.put(rs.getString(1), rs.getTimestamp(2).toLocalDateTime());
+                }, ShardingRoute.DEFAULT_DATA_SOURCE_KEY, STATUS_DONE, since);
+        return changes;
+    }
+
+    /**
+     * 正在执行的变更ID，没有时返回null
+     */
+    public String getRunning() {
+        return running.get();
+    }
+
+    /**
+     * 变更进度：各状态的表数、失败的表，以及分片配置中应有但尚不存在的物理表
+     */
+    public Map<String, Object> getProgress(String migrationId) {
+        List<Map<String, Object>> rows = progressTemplate().queryForList(
+                "SELECT logical_table, data_source_key, table_name, status, error_message, elapsed_ms "
+                        + "FROM schema_migration WHERE migration_id = ?", migrationId);
+
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        List<Map<String, Object>> failed = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            counts.merge(String.valueOf(row.get("status")), 1, Integer::sum);
+            if (STATUS_FAILED.equals(row.get("status"))) {
+                failed.add(row);
+            }
+        }
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("migrationId", migrationId);
+        progress.put("running", migrationId.equals(running.get()));
+        progress.put("total", rows.size());
+        progress.put("counts", counts);
+        progress.put("failed", failed);
+        if (!rows.isEmpty()) {
+            progress.put("missingTables", missingTables(String.valueOf(rows.get(0).get("logical_table"))));
+        }
+        return progress;
+    }
+
+    private void migrate(String migrationId, String logicalTable, String alterClause) {
+        long start = System.currentTimeMillis();
+        Set<String> done = new HashSet<>(progressTemplate().queryForList(
+                "SELECT CONCAT(data_source_key, ':', table_name) FROM schema_migration WHERE migration_id = ? AND status = ?",
+                String.class, migrationId, STATUS_DONE));
+
+        // 先变更模板表，之后自动创建的表即为新结构；模板表变更失败时不继续
+        String templateKey = ShardingRoute.DEFAULT_DATA_SOURCE_KEY + ":" + logicalTable;
+        if (!done.contains(templateKey)) {
+            if (!templateExists(logicalTable)) {
+                log.info("默认库中没有模板表[{}]，跳过模板表变更", logicalTable);
+            } else if (!apply(migrationId, logicalTable, alterClause, ShardingRoute.DEFAULT_DATA_SOURCE_KEY, logicalTable)) {
+                log.error("结构变更[{}]在模板表[{}]上失败，停止执行", migrationId, logicalTable);
+                return;
+            }
+        }
+        tableAutoCreateService.refreshDdlTemplate(logicalTable);
+
+        // 按分片分组待变更的物理表
+        Map<String, Queue<String>> pending = new LinkedHashMap<>();
+        int total = 0;
+        for (Map.Entry<String, List<String>> entry : physicalTableLocator.locate(logicalTable).entrySet()) {
+            Queue<String> tables = new ConcurrentLinkedQueue<>();
+            for (String table : entry.getValue()) {
+                if (!done.contains(entry.getKey() + ":" + table)) {
+                    tables.add(table);
+                }
+            }
+            if (!tables.isEmpty()) {
+                pending.put(entry.getKey(), tables);
+                total += tables.size();
+            }
+        }
+        log.info("结构变更[{}]开始，逻辑表: {}，待变更物理表: {}，分片数: {}", migrationId, logicalTable, total, pending.size());
+
+        // 每个分片最多per-shard-concurrency个任务从该分片的队列中取表执行
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism),
+                ThreadUtil.newNamedThreadFactory("schema-migration-worker-", true));
+        try {
+            List<CompletableFuture<Void>> workers = new ArrayList<>();
+            pending.forEach((dataSourceKey, tables) -> {
+                int workerCount = Math.min(Math.max(1, perShardConcurrency), tables.size());
+                for (int i = 0; i < workerCount; i++) {
+                    workers.add(CompletableFuture.runAsync(() -> {
+                        String table;
+                        while ((table = tables.poll()) != null) {
+                            apply(migrationId, logicalTable, alterClause, dataSourceKey, table);
+                        }
+                    }, executor));
+                }
+            });
+            CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        log.info("结构变更[{}]结束，耗时{}ms，进度: {}", migrationId, System.currentTimeMillis() - start,
+                getProgress(migrationId).get("counts"));
+    }
+
+    /**
+     * 在一张物理表上执行ALTER并记录结果
+     */
+    private boolean apply(String migrationId, String logicalTable, String alterClause, String dataSourceKey, String table) {
+        record(migrationId, logicalTable, alterClause, dataSourceKey, table, STATUS_RUNNING, null, null);
+        long start = System.currentTimeMillis();
+        try {
+            new JdbcTemplate(dataSourceRegistry.getDataSource(dataSourceKey))
+                    .execute("ALTER TABLE `" + table + "` " + alterClause);
+            record(migrationId, logicalTable, alterClause, dataSourceKey, table, STATUS_DONE, null,
+                    System.currentTimeMillis() - start);
+            log.info("结构变更[{}]完成: {}.{}", migrationId, dataSourceKey, table);
+            return true;
+        } catch (Exception e) {
+            long elapsed = System.currentTimeMillis() - start;
+            SQLException sqlException = findSqlException(e);
+            if (sqlException != null && ALREADY_APPLIED_ERRORS.contains(sqlException.getErrorCode())) {
+                record(migrationId, logicalTable, alterClause, dataSourceKey, table, STATUS_DONE,
+                        "已应用: " + sqlException.getMessage(), elapsed);
+                return true;
+            }
+            record(migrationId, logicalTable, alterClause, dataSourceKey, table, STATUS_FAILED,
+                    StrUtil.maxLength(e.getMessage(), 500), elapsed);
+            log.warn("结构变更[{}]失败: {}.{}，{}", migrationId, dataSourceKey, table, e.getMessage());
+            return false;
+        }
+    }
+
+    private void record(String migrationId, String logicalTable, String alterClause, String dataSourceKey,
+                        String table, String status, String errorMessage, Long elapsedMs) {
+        try {
+            progressTemplate().update("INSERT INTO schema_migration "
+                            + "(migration_id, logical_table, data_source_key, table_name, ddl, status, error_message, elapsed_ms) "
+                            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+                            + "status = VALUES(status), error_message = VALUES(error_message), elapsed_ms = VALUES(elapsed_ms)",
+                    migrationId, logicalTable, dataSourceKey, table, alterClause, status, errorMessage, elapsedMs);
+        } catch (Exception e) {
+            // 进度记录失败不影响变更本身，重新提交时ALTER按已应用处理
+            log.warn("记录结构变更[{}]进度失败: {}.{}，{}", migrationId, dataSourceKey, table, e.getMessage());
+        }
+    }
+
+    /**
+     * 分片配置中应有但尚不存在的物理表，首次写入时会按新模板创建
+     */
+    private Map<String, List<String>> missingTables(String logicalTable) {
+        Map<String, List<String>> located = physicalTableLocator.locate(logicalTable);
+        Map<String, List<String>> missing = new LinkedHashMap<>();
+        physicalTableLocator.expected(logicalTable).forEach((dataSourceKey, tables) -> {
+            List<String> existing = located.getOrDefault(dataSourceKey, Collections.emptyList());
+            for (String table : tables) {
+                if (!existing.contains(table)) {
+                    missing.computeIfAbsent(dataSourceKey, k -> new ArrayList<>()).add(table);
+                }
+            }
+        });
+        return missing;
+    }
+
+    private boolean templateExists(String logicalTable) {
+        Integer count = progressTemplate().queryForObject("SELECT COUNT(*) FROM information_schema.tables "
+                + "WHERE table_schema = DATABASE() AND table_name = ?", Integer.class, logicalTable);
+        return count != null && count > 0;
+    }
+
+    /**
+     * 进度表和模板表位于默认库，直接使用默认数据源，不受当前线程的分片路由影响
+     */
+    private JdbcTemplate progressTemplate() {
+        return new JdbcTemplate(dataSourceRegistry.getDataSource(ShardingRoute.DEFAULT_DATA_SOURCE_KEY));
+    }
+
+    private static SQLException findSqlException(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                return (SQLException) cause;
+            }
+        }
+        return null;
+    }
+}
@@ -54,6 +54,23 @@ public interface OrderService extends IService<Order> {
      */
     CompletableFuture<List<OrderDetailVO>> getOrderDetailByStatusAsync(String projectId, Integer status);
 
+    /**
+     * 多表联查：跨项目查询指定状态的订单详情，各分片并行查询后按下单时间倒序归并
+     *
+     * @param projectIds 项目ID，为空时查询所有分片的全部物理表
+     * @throws IllegalArgumentException 结果超过跨分片查询的行数上限，需改用分页查询
+     */
+    List<OrderDetailVO> getOrderDetailByStatusAcrossProjects(List<String> projectIds, Integer status);
+
+    /**
+     * 多表联查：跨项目分页查询指定状态的订单详情，每张物理表只读取前offset+limit行
+     *
+     * @param projectIds 项目ID，为空时查询所有分片的全部物理表
+     * @param offset 跳过的行数
+     * @param limit 返回的行数
+     */
+    List<OrderDetailVO> pageOrderDetailByStatusAcrossProjects(List<String> projectIds, Integer status, int offset, int limit);
+
     /**
      * 批量更新订单状态（同步）
      */
@@ -3,6 +3,9 @@ package com.example.sharding.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.example.sharding.entity.ShardingConfig;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * 分片配置服务接口
  * 
@@ -19,4 +22,19 @@ public interface ShardingConfigService extends IService<ShardingConfig> {
      * 创建分片配置
      */
     boolean createConfig(String projectId, String databaseSuffix, String tableSuffix);
+    
+    /**
+     * 查询指定时间之后变更的配置，包含已逻辑删除的记录
+     */
+    List<ShardingConfig> listChangedSince(LocalDateTime since);
+    
+    /**
+     * 查询全部未删除的配置
+     */
+    List<ShardingConfig> listActiveConfigs();
+    
+    /**
+     * 获取配置的最新更新时间，配置表为空时返回null
+     */
+    LocalDateTime getMaxUpdateTime();
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package com.example.sharding.service;
 
+import java.util.Map;
+import java.util.Set;
+
 /**
  * 表自动创建服务接口
  * 
@@ -25,6 +28,15 @@ public interface TableAutoCreateService {
      */
     boolean isTableExists(String tableName, String dataSourceKey);
     
+    /**
+     * 获取数据源中已存在的表名清单（内存缓存，由定时任务和建表时更新），首次访问时加载
+     * 
+     * @param dataSourceKey 数据源键
+     * @return 只读的表名集合
+     * @throws org.springframework.dao.DataAccessException 加载表清单失败
+     */
+    Set<String> getExistingTables(String dataSourceKey);
+    
     /**
      * 创建表
      * 
@@ -34,4 +46,38 @@ public interface TableAutoCreateService {
      * @return 是否创建成功
      */
     boolean createTable(String originalTableName, String targetTableName, String dataSourceKey);
+    
+    /**
+     * 丢弃缓存的建表语句模板，模板表结构变更后调用，之后创建的表使用新结构
+     * 
+     * @param originalTableName 原始表名
+     */
+    void refreshDdlTemplate(String originalTableName);
+    
+    /**
+     * 异步创建项目在目标分片上的全部分片表，立即返回
+     * 
+     * @param projectId 项目ID
+     */
+    void provisionProject(String projectId);
+    
+    /**
+     * 获取项目分片表的创建状态
+     * 
+     * @param projectId 项目ID
+     * @return 逻辑表名 -> 创建状态，未提交过创建任务时返回空
+     */
+    Map<String, TableStatus> getProvisionStatus(String projectId);
+    
+    /**
+     * 分片表创建状态
+     */
+    enum TableStatus {
+        /** 等待创建 */
+        PENDING,
+        /** 已创建或已存在 */
+        READY,
+        /** 创建失败，首次写入时会再次尝试 */
+        FAILED
+    }
 }
\ No newline at end of file
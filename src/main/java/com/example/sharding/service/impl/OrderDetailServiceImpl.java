@@ -2,7 +2,6 @@ package com.example.sharding.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.example.sharding.annotation.ShardingDataSource;
-import com.example.sharding.context.DatabaseContext;
 import com.example.sharding.entity.OrderDetail;
 import com.example.sharding.mapper.OrderDetailMapper;
 import com.example.sharding.service.OrderDetailService;
@@ -51,9 +50,6 @@ public class OrderDetailServiceImpl extends ServiceImpl<OrderDetailMapper, Order
     public CompletableFuture<Boolean> batchCreateOrderDetailsAsync(List<OrderDetail> detailList, String projectId) {
         log.info("异步批量创建订单详情 - 项目ID: {}, 详情数量: {}", projectId, detailList.size());
         
-        // 在异步方法中手动设置上下文
-        DatabaseContext.setProjectId(projectId);
-        
         boolean result = batchCreateOrderDetails(detailList, projectId);
         return CompletableFuture.completedFuture(result);
     }
@@ -72,9 +68,6 @@ public class OrderDetailServiceImpl extends ServiceImpl<OrderDetailMapper, Order
     public CompletableFuture<Boolean> batchUpdateQuantityAsync(String projectId, List<Long> detailIds, Integer quantity) {
         log.info("异步批量更新商品数量 - 项目ID: {}, 详情数量: {}, 新数量: {}", projectId, detailIds.size(), quantity);
         
-        // 在异步方法中手动设置上下文
-        DatabaseContext.setProjectId(projectId);
-        
         boolean result = batchUpdateQuantity(projectId, detailIds, quantity);
         return CompletableFuture.completedFuture(result);
     }
@@ -93,9 +86,6 @@ public class OrderDetailServiceImpl extends ServiceImpl<OrderDetailMapper, Order
     public CompletableFuture<Boolean> batchUpdatePriceByOrderIdAsync(String projectId, Long orderId, BigDecimal discountRate) {
         log.info("异步批量更新订单价格 - 项目ID: {}, 订单ID: {}, 折扣率: {}", projectId, orderId, discountRate);
         
-        // 在异步方法中手动设置上下文
-        DatabaseContext.setProjectId(projectId);
-        
         boolean result = batchUpdatePriceByOrderId(projectId, orderId, discountRate);
         return CompletableFuture.completedFuture(result);
     }
@@ -114,9 +104,6 @@ public class OrderDetailServiceImpl extends ServiceImpl<OrderDetailMapper, Order
     public CompletableFuture<Boolean> batchDeleteByProductIdAsync(String projectId, List<Long> productIds) {
         log.info("异步根据商品ID批量删除订单详情 - 项目ID: {}, 商品数量: {}", projectId, productIds.size());
         
-        // 在异步方法中手动设置上下文
-        DatabaseContext.setProjectId(projectId);
-        
         boolean result = batchDeleteByProductId(projectId, productIds);
         return CompletableFuture.completedFuture(result);
     }
@@ -2,10 +2,11 @@ package com.example.sharding.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.example.sharding.annotation.ShardingDataSource;
-import com.example.sharding.context.DatabaseContext;
+import com.example.sharding.context.ShardingRoute;
 import com.example.sharding.entity.Order;
 import com.example.sharding.entity.vo.OrderDetailVO;
 import com.example.sharding.mapper.OrderMapper;
+import com.example.sharding.scatter.ScatterGatherExecutor;
 import com.example.sharding.service.OrderService;
 import com.example.sharding.service.TableAutoCreateService;
 import lombok.extern.slf4j.Slf4j;
@@ -14,6 +15,9 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -27,9 +31,26 @@ import java.util.concurrent.CompletableFuture;
 @ShardingDataSource
 public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements OrderService {
 
+    /**
+     * 与跨项目查询语句的ORDER BY o.create_time DESC, od.id ASC, sourceKey ASC一致，
+     * 不同物理表的明细ID可能相同，以来源物理表区分，排序为全序
+     */
+    private static final Comparator<OrderDetailVO> ORDER_DETAIL_ORDER = Comparator
+            .comparing(OrderDetailVO::getOrderCreateTime, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()))
+            .thenComparing(OrderDetailVO::getDetailId, Comparator.nullsFirst(Comparator.<Long>naturalOrder()))
+            .thenComparing(OrderDetailVO::getSourceKey, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
+    /**
+     * 跨项目查询涉及的逻辑表，驱动表在前；缺少任一张表的物理表目标不参与查询
+     */
+    private static final List<String> ORDER_DETAIL_TABLES = Arrays.asList("order_info", "order_detail", "user_info");
+
     @Autowired
     private TableAutoCreateService tableAutoCreateService;
 
+    @Autowired
+    private ScatterGatherExecutor scatterGatherExecutor;
+
     @Override
     @Transactional
     public boolean createOrder(Order order, String projectId) {
@@ -49,9 +70,6 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     public CompletableFuture<Boolean> createOrderAsync(Order order, String projectId) {
         log.info("异步创建订单 - 项目ID: {}, 订单号: {}", projectId, order.getOrderNo());
         
-        // 在异步方法中手动设置上下文
-        DatabaseContext.setProjectId(projectId);
-        
         boolean result = createOrder(order, projectId);
         return CompletableFuture.completedFuture(result);
     }
@@ -67,9 +85,6 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     public CompletableFuture<List<OrderDetailVO>> getOrderDetailWithUserAsync(String projectId, String orderNo) {
         log.info("异步多表联查订单详情 - 项目ID: {}, 订单号: {}", projectId, orderNo);
         
-        // 在异步方法中手动设置上下文
-        DatabaseContext.setProjectId(projectId);
-        
         List<OrderDetailVO> result = getOrderDetailWithUser(projectId, orderNo);
         return CompletableFuture.completedFuture(result);
     }
@@ -85,9 +100,6 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     public CompletableFuture<List<OrderDetailVO>> getOrderDetailByUserIdAsync(String projectId, Long userId) {
         log.info("异步根据用户ID查询订单详情 - 项目ID: {}, 用户ID: {}", projectId, userId);
         
-        // 在异步方法中手动设置上下文
-        DatabaseContext.setProjectId(projectId);
-        
         List<OrderDetailVO> result = getOrderDetailByUserId(projectId, userId);
         return CompletableFuture.completedFuture(result);
     }
@@ -103,13 +115,38 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     public CompletableFuture<List<OrderDetailVO>> getOrderDetailByStatusAsync(String projectId, Integer status) {
         log.info("异步根据状态查询订单详情 - 项目ID: {}, 状态: {}", projectId, status);
         
-        // 在异步方法中手动设置上下文
-        DatabaseContext.setProjectId(projectId);
-        
         List<OrderDetailVO> result = getOrderDetailByStatus(projectId, status);
         return CompletableFuture.completedFuture(result);
     }
 
+    @Override
+    public List<OrderDetailVO> getOrderDetailByStatusAcrossProjects(List<String> projectIds, Integer status) {
+        log.info("跨项目根据状态查询订单详情 - 项目数: {}, 状态: {}", projectIds == null ? "全部" : projectIds.size(), status);
+        
+        return scatterGatherExecutor.queryAll(orderTables(projectIds),
+                (sourceKey, rows, handler) -> baseMapper.scanOrderDetailByStatusAcrossProjects(projectIds, status, sourceKey, rows, handler),
+                ORDER_DETAIL_ORDER);
+    }
+
+    @Override
+    public List<OrderDetailVO> pageOrderDetailByStatusAcrossProjects(List<String> projectIds, Integer status, int offset, int limit) {
+        log.info("跨项目分页查询订单详情 - 项目数: {}, 状态: {}, offset: {}, limit: {}",
+                projectIds == null ? "全部" : projectIds.size(), status, offset, limit);
+        
+        return scatterGatherExecutor.queryPage(orderTables(projectIds),
+                (sourceKey, rows, handler) -> baseMapper.scanOrderDetailByStatusAcrossProjects(projectIds, status, sourceKey, rows, handler),
+                ORDER_DETAIL_ORDER, offset, limit);
+    }
+
+    /**
+     * 跨项目查询的物理表：未指定项目时为所有分片中的全部订单表
+     */
+    private List<ShardingRoute> orderTables(List<String> projectIds) {
+        return projectIds == null || projectIds.isEmpty()
+                ? scatterGatherExecutor.allTables(ORDER_DETAIL_TABLES)
+                : scatterGatherExecutor.projectTables(projectIds, ORDER_DETAIL_TABLES);
+    }
+
     @Override
     @Transactional
     public boolean batchUpdateOrderStatus(String projectId, List<Long> orderIds, Integer newStatus) {
@@ -124,9 +161,6 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     public CompletableFuture<Boolean> batchUpdateOrderStatusAsync(String projectId, List<Long> orderIds, Integer newStatus) {
         log.info("异步批量更新订单状态 - 项目ID: {}, 订单数量: {}, 新状态: {}", projectId, orderIds.size(), newStatus);
         
-        // 在异步方法中手动设置上下文
-        DatabaseContext.setProjectId(projectId);
-        
         boolean result = batchUpdateOrderStatus(projectId, orderIds, newStatus);
         return CompletableFuture.completedFuture(result);
     }
@@ -147,9 +181,6 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         log.info("异步根据用户ID批量更新订单状态 - 项目ID: {}, 用户ID: {}, 旧状态: {}, 新状态: {}", 
                 projectId, userId, oldStatus, newStatus);
         
-        // 在异步方法中手动设置上下文
-        DatabaseContext.setProjectId(projectId);
-        
         boolean result = batchUpdateOrderStatusByUserId(projectId, userId, oldStatus, newStatus);
         return CompletableFuture.completedFuture(result);
     }
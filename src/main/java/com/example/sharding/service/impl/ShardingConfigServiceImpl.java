@@ -1,12 +1,22 @@
 package com.example.sharding.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.sharding.context.ShardingContext;
+import com.example.sharding.context.ShardingRoute;
 import com.example.sharding.entity.ShardingConfig;
 import com.example.sharding.mapper.ShardingConfigMapper;
 import com.example.sharding.service.ShardingConfigService;
+import com.example.sharding.service.TableAutoCreateService;
+import com.example.sharding.strategy.ProjectShardingStrategy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 分片配置服务实现
@@ -18,11 +28,31 @@ import org.springframework.stereotype.Service;
 public class ShardingConfigServiceImpl extends ServiceImpl<ShardingConfigMapper, ShardingConfig> 
         implements ShardingConfigService {
     
+    /**
+     * 建表服务和分片策略都依赖本服务，延迟注入避免循环依赖
+     */
+    @Lazy
+    @Autowired
+    private TableAutoCreateService tableAutoCreateService;
+    
+    @Lazy
+    @Autowired
+    private ProjectShardingStrategy projectShardingStrategy;
+    
+    /**
+     * 直接查询配置表，缓存由ProjectShardingStrategy的路由缓存负责
+     */
     @Override
-    @Cacheable(value = "shardingConfig", key = "#projectId", unless = "#result == null")
     public ShardingConfig getConfigByProjectId(String projectId) {
         log.debug("查询项目[{}]的分片配置", projectId);
-        return baseMapper.selectByProjectId(projectId);
+        
+        // 配置表位于默认库，查询时不受当前请求已绑定的分片路由影响
+        ShardingRoute previous = ShardingContext.push(ShardingRoute.ofDataSource(ShardingRoute.DEFAULT_DATA_SOURCE_KEY));
+        try {
+            return baseMapper.selectByProjectId(projectId);
+        } finally {
+            ShardingContext.pop(previous);
+        }
     }
     
     @Override
@@ -35,6 +65,60 @@ public class ShardingConfigServiceImpl extends ServiceImpl<ShardingConfigMapper,
         boolean result = save(config);
         log.info("创建分片配置 - 项目ID: {}, 数据库后缀: {}, 表后缀: {}, 结果: {}", 
                 projectId, databaseSuffix, tableSuffix, result);
+        if (result) {
+            afterCommit(() -> {
+                // 提交后再更新本节点路由：替换创建前缓存的"项目不存在"结果，建表任务按新配置路由
+                projectShardingStrategy.applyConfigChange(config);
+                // 提前在目标分片上建表，新项目的首次写入不再承担建表开销
+                tableAutoCreateService.provisionProject(projectId);
+            });
+        }
         return result;
     }
-}
\ No newline at end of file
+    
+    /**
+     * 在当前事务提交后执行，没有事务时立即执行；避免提交前的并发请求把旧结果重新写入路由缓存
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+    
+    @Override
+    public List<ShardingConfig> listChangedSince(LocalDateTime since) {
+        ShardingRoute previous = ShardingContext.push(ShardingRoute.ofDataSource(ShardingRoute.DEFAULT_DATA_SOURCE_KEY));
+        try {
+            return baseMapper.selectChangedSince(since);
+        } finally {
+            ShardingContext.pop(previous);
+        }
+    }
+    
+    @Override
+    public List<ShardingConfig> listActiveConfigs() {
+        ShardingRoute previous = ShardingContext.push(ShardingRoute.ofDataSource(ShardingRoute.DEFAULT_DATA_SOURCE_KEY));
+        try {
+            return list();
+        } finally {
+            ShardingContext.pop(previous);
+        }
+    }
+    
+    @Override
+    public LocalDateTime getMaxUpdateTime() {
+        ShardingRoute previous = ShardingContext.push(ShardingRoute.ofDataSource(ShardingRoute.DEFAULT_DATA_SOURCE_KEY));
+        try {
+            return baseMapper.selectMaxUpdateTime();
+        } finally {
+            ShardingContext.pop(previous);
+        }
+    }
+}
@@ -1,17 +1,38 @@
 package com.example.sharding.service.impl;
 
-import com.example.sharding.context.DatabaseContext;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.example.sharding.context.ShardingRoute;
+import com.example.sharding.datasource.DataSourceRegistry;
+import com.example.sharding.metadata.LogicalTableRegistry;
 import com.example.sharding.service.TableAutoCreateService;
 import com.example.sharding.strategy.ShardingStrategy;
-import com.example.sharding.utils.SqlExecuteUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 表自动创建服务实现
@@ -25,19 +46,214 @@ public class TableAutoCreateServiceImpl implements TableAutoCreateService {
     @Autowired
     private ShardingStrategy shardingStrategy;
     
+    @Value("${sharding.auto-create-table:true}")
+    private boolean autoCreateTableEnabled;
+    
+    /**
+     * 等待其他节点建表的命名锁超时时间(秒)
+     */
+    @Value("${sharding.table-create-lock-timeout:30}")
+    private long lockTimeout;
+    
     @Autowired
-    private DataSource dataSource;
+    private DataSourceRegistry dataSourceRegistry;
     
     @Autowired
-    private SqlExecuteUtils sqlExecuteUtils;
+    private LogicalTableRegistry logicalTableRegistry;
     
-    @Value("${sharding.auto-create-table:true}")
-    private boolean autoCreateTableEnabled;
+    /**
+     * 已存在的物理表
+     * key: 数据源键，value: 该数据源中的表名集合
+     * 首次路由到数据源时加载，之后由定时任务按数据源批量刷新，自动建表检查命中时不访问数据库
+     */
+    private final Map<String, Set<String>> existingTables = new ConcurrentHashMap<>();
+    
+    /**
+     * 正在创建的物理表
+     * key: 数据源键:物理表名
+     */
+    private final Map<String, CompletableFuture<Boolean>> creatingTables = new ConcurrentHashMap<>();
+    
+    /**
+     * 逻辑表的建表语句模板（默认库中原始表的SHOW CREATE TABLE结果）
+     * 结构变更后由各节点的配置变更监听使其失效，存活时间作为兜底，超过后重新读取
+     */
+    private final Map<String, DdlTemplate> ddlTemplates = new ConcurrentHashMap<>();
+    
+    /**
+     * 建表语句模板的存活时间(秒)
+     */
+    @Value("${sharding.ddl-template-ttl:600}")
+    private long ddlTemplateTtl;
+    
+    /**
+     * 未全部建成的项目分片表创建状态，全部建成后移除，之后的状态按表清单判断
+     * key: 项目ID，value: 逻辑表名 -> 创建状态
+     */
+    private final Map<String, Map<String, TableStatus>> provisionStatus = new ConcurrentHashMap<>();
+    
+    /**
+     * 新项目建表线程池，与业务请求线程隔离，队列满时放弃，首次写入时再建表
+     */
+    private ThreadPoolExecutor provisionExecutor;
+    
+    @PostConstruct
+    public void init() {
+        provisionExecutor = new ThreadPoolExecutor(1, 2, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1024),
+                ThreadUtil.newNamedThreadFactory("table-provision-", true));
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        provisionExecutor.shutdownNow();
+    }
+    
+    /**
+     * 批量刷新各分片库的表名，每个数据源一次查询
+     * 只刷新已创建连接池的数据源，不创建连接池也不刷新空闲计时，空闲的连接池仍可按时关闭；
+     * 未创建连接池的数据源在首次路由时加载
+     */
+    @Scheduled(fixedDelayString = "${sharding.table-preload.interval:300000}")
+    public void preloadExistingTables() {
+        long start = System.currentTimeMillis();
+        int total = 0;
+        int refreshed = 0;
+        for (String dataSourceKey : dataSourceRegistry.getCatalog()) {
+            DataSource dataSource = dataSourceRegistry.peekDataSource(dataSourceKey);
+            if (dataSource == null) {
+                continue;
+            }
+            try {
+                Set<String> tables = queryTables(dataSource);
+                existingTables.put(dataSourceKey, tables);
+                total += tables.size();
+                refreshed++;
+            } catch (Exception e) {
+                log.warn("加载数据源[{}]的表清单失败: {}", dataSourceKey, e.getMessage());
+            }
+        }
+        log.info("刷新分片库表清单完成，数据源{}个，共{}张表，耗时{}ms", refreshed, total, System.currentTimeMillis() - start);
+    }
+    
+    /**
+     * 首次路由到数据源时加载其表清单，加载失败时不缓存，由建表检查确认表是否存在
+     */
+    private Set<String> loadExistingTables(String dataSourceKey) {
+        try {
+            return cachedTables(dataSourceKey);
+        } catch (Exception e) {
+            log.warn("加载数据源[{}]的表清单失败: {}", dataSourceKey, e.getMessage());
+            return ConcurrentHashMap.newKeySet();
+        }
+    }
+    
+    private Set<String> cachedTables(String dataSourceKey) {
+        Set<String> tables = existingTables.get(dataSourceKey);
+        if (tables != null) {
+            return tables;
+        }
+        tables = queryTables(dataSourceRegistry.getDataSource(dataSourceKey));
+        Set<String> existing = existingTables.putIfAbsent(dataSourceKey, tables);
+        log.debug("加载数据源[{}]的表清单，共{}张表", dataSourceKey, tables.size());
+        return existing != null ? existing : tables;
+    }
+    
+    @Override
+    public Set<String> getExistingTables(String dataSourceKey) {
+        return Collections.unmodifiableSet(cachedTables(dataSourceKey));
+    }
+    
+    private static Set<String> queryTables(DataSource dataSource) {
+        List<String> tables = new JdbcTemplate(dataSource).queryForList(
+                "SELECT table_name FROM information_schema.tables WHERE table_schema = DATABASE()", String.class);
+        Set<String> tableSet = ConcurrentHashMap.newKeySet(tables.size());
+        tableSet.addAll(tables);
+        return tableSet;
+    }
+    
+    @Override
+    public void refreshDdlTemplate(String originalTableName) {
+        ddlTemplates.remove(originalTableName);
+        log.info("逻辑表[{}]的建表语句模板已失效，下次建表时重新读取", originalTableName);
+    }
+    
+    @Override
+    public void provisionProject(String projectId) {
+        if (!autoCreateTableEnabled) {
+            return;
+        }
+        
+        Map<String, TableStatus> status = new LinkedHashMap<>();
+        logicalTableRegistry.getShardedTables().forEach(table -> status.put(table, TableStatus.PENDING));
+        Map<String, TableStatus> tableStatus = Collections.synchronizedMap(status);
+        provisionStatus.put(projectId, tableStatus);
+        
+        try {
+            provisionExecutor.execute(() -> provision(projectId, tableStatus));
+        } catch (RejectedExecutionException e) {
+            provisionStatus.remove(projectId, tableStatus);
+            log.warn("项目[{}]建表任务队列已满，改为首次写入时建表", projectId);
+        }
+    }
+    
+    @Override
+    public Map<String, TableStatus> getProvisionStatus(String projectId) {
+        Map<String, TableStatus> status = provisionStatus.get(projectId);
+        if (status != null) {
+            synchronized (status) {
+                return new LinkedHashMap<>(status);
+            }
+        }
+        return readyStatus(projectId);
+    }
+    
+    /**
+     * 已全部建成的项目不再保留状态，按已加载的表清单判断，不为查询状态创建连接池
+     * 
+     * @return 全部分片表都在表清单中时均为READY，否则为空
+     */
+    private Map<String, TableStatus> readyStatus(String projectId) {
+        ShardingRoute route;
+        try {
+            route = shardingStrategy.resolve(projectId);
+        } catch (RuntimeException e) {
+            return Collections.emptyMap();
+        }
+        Set<String> tables = existingTables.get(route.getDataSourceKey());
+        if (tables == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, TableStatus> status = new LinkedHashMap<>();
+        for (String table : logicalTableRegistry.getShardedTables()) {
+            if (!tables.contains(route.getActualTableName(table))) {
+                return Collections.emptyMap();
+            }
+            status.put(table, TableStatus.READY);
+        }
+        return status;
+    }
     
     /**
-     * 表创建缓存，避免重复检查
+     * 逐个创建项目的分片表，建成的表进入表清单，之后的写入只检查内存中的表清单
      */
-    private final ConcurrentHashMap<String, Boolean> tableCreatedCache = new ConcurrentHashMap<>();
+    private void provision(String projectId, Map<String, TableStatus> tableStatus) {
+        long start = System.currentTimeMillis();
+        for (String table : logicalTableRegistry.getShardedTables()) {
+            try {
+                tableStatus.put(table, autoCreateTableIfNotExists(table, projectId) ? TableStatus.READY : TableStatus.FAILED);
+            } catch (Exception e) {
+                tableStatus.put(table, TableStatus.FAILED);
+                log.error("项目[{}]创建分片表[{}]失败", projectId, table, e);
+            }
+        }
+        log.info("项目[{}]分片表创建完成: {}，耗时{}ms", projectId, getProvisionStatus(projectId),
+                System.currentTimeMillis() - start);
+        synchronized (tableStatus) {
+            if (tableStatus.values().stream().allMatch(TableStatus.READY::equals)) {
+                provisionStatus.remove(projectId, tableStatus);
+            }
+        }
+    }
     
     @Override
     public boolean autoCreateTableIfNotExists(String originalTableName, String projectId) {
@@ -46,54 +262,134 @@ public class TableAutoCreateServiceImpl implements TableAutoCreateService {
             return true;
         }
         
-        // 获取数据源键和表后缀
-        String dataSourceKey = shardingStrategy.getDataSourceKey(projectId);
-        String actualTableName = shardingStrategy.getActualTableName(originalTableName, projectId);
-        
-        // 生成缓存键
-        String cacheKey = dataSourceKey + ":" + actualTableName;
+        // 获取数据源键和实际表名
+        ShardingRoute route = shardingStrategy.resolve(projectId);
+        String dataSourceKey = route.getDataSourceKey();
+        String actualTableName = route.getActualTableName(originalTableName);
         
-        // 如果已经创建过，直接返回
-        if (tableCreatedCache.containsKey(cacheKey)) {
-            log.debug("表[{}]已在缓存中，跳过检查", actualTableName);
+        // 表清单中已存在，直接返回
+        Set<String> tables = existingTables.get(dataSourceKey);
+        if (tables == null) {
+            tables = loadExistingTables(dataSourceKey);
+        }
+        if (tables.contains(actualTableName)) {
+            log.debug("表[{}]已在表清单中，跳过检查", actualTableName);
             return true;
         }
         
-        // 检查表是否存在
-        if (isTableExists(actualTableName, dataSourceKey)) {
-            log.debug("表[{}]已存在", actualTableName);
-            tableCreatedCache.put(cacheKey, true);
-            return true;
+        // 同一物理表只由一个线程检查和创建，其余线程等待同一结果
+        String creationKey = dataSourceKey + ":" + actualTableName;
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = creatingTables.putIfAbsent(creationKey, future);
+        if (existing != null) {
+            log.debug("表[{}]正在由其他线程创建，等待结果", actualTableName);
+            return existing.join();
         }
         
-        // 创建表
-        boolean created = createTable(originalTableName, actualTableName, dataSourceKey);
-        if (created) {
-            tableCreatedCache.put(cacheKey, true);
-            log.info("自动创建表[{}]成功", actualTableName);
-        } else {
-            log.error("自动创建表[{}]失败", actualTableName);
+        try {
+            boolean created = checkAndCreate(originalTableName, actualTableName, dataSourceKey);
+            if (created) {
+                tables.add(actualTableName);
+            }
+            future.complete(created);
+            return created;
+        } catch (RuntimeException e) {
+            future.complete(false);
+            throw e;
+        } finally {
+            creatingTables.remove(creationKey, future);
+        }
+    }
+    
+    /**
+     * 在目标分片的独立连接上持有命名锁完成检查和建表：
+     * 不使用调用方事务绑定的连接，DDL的隐式提交不会影响调用方事务；
+     * 多个节点同时创建同一张表时，后到的节点等待锁释放后确认表已存在，不再重复执行DDL
+     */
+    private boolean checkAndCreate(String originalTableName, String actualTableName, String dataSourceKey) {
+        String createTableSql = getTargetCreateSql(originalTableName, actualTableName);
+        if (createTableSql == null) {
+            log.error("无法获取原始表[{}]的建表语句", originalTableName);
+            return false;
         }
         
-        return created;
+        String lockName = lockName(dataSourceKey, actualTableName);
+        try (Connection connection = dataSourceRegistry.getDataSource(dataSourceKey).getConnection()) {
+            if (!acquireLock(connection, lockName)) {
+                // 等待超时，其他节点可能仍在建表，以表是否已存在为准
+                boolean exists = tableExists(connection, actualTableName);
+                log.warn("等待表[{}]的建表锁超时，表{}存在", actualTableName, exists ? "已" : "不");
+                return exists;
+            }
+            try {
+                // 表清单加载之后可能由其他节点创建，持有锁后再确认一次
+                if (tableExists(connection, actualTableName)) {
+                    log.debug("表[{}]已存在", actualTableName);
+                    return true;
+                }
+                
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(createTableSql);
+                }
+                log.info("自动创建表[{}]成功", actualTableName);
+                return true;
+            } finally {
+                releaseLock(connection, lockName);
+            }
+        } catch (SQLException e) {
+            log.error("自动创建表[{}]失败", actualTableName, e);
+            return false;
+        }
+    }
+    
+    /**
+     * 获取命名锁，超时返回false
+     */
+    private boolean acquireLock(Connection connection, String lockName) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, lockName);
+            ps.setLong(2, lockTimeout);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+    
+    private void releaseLock(Connection connection, String lockName) {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, lockName);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            // 连接关闭时锁随会话释放
+            log.warn("释放建表锁[{}]失败: {}", lockName, e.getMessage());
+        }
+    }
+    
+    private boolean tableExists(Connection connection, String tableName) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?")) {
+            ps.setString(1, tableName);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+    
+    /**
+     * 命名锁按库名和表名区分，MySQL限制锁名最长64个字符，超出时取摘要
+     */
+    static String lockName(String dataSourceKey, String tableName) {
+        String name = "sharding:ddl:" + dataSourceKey + "." + tableName;
+        return name.length() <= 64 ? name : "sharding:ddl:" + DigestUtil.md5Hex(name);
     }
     
     @Override
     public boolean isTableExists(String tableName, String dataSourceKey) {
-        try {
-            // 切换到目标数据源
-            DatabaseContext.setDataSourceKey(dataSourceKey);
-            
-            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
-            String sql = "SELECT COUNT(*) FROM information_schema.tables " +
-                        "WHERE table_schema = DATABASE() AND table_name = ?";
-            
-            Integer count = jdbcTemplate.queryForObject(sql, Integer.class, tableName);
-            boolean exists = count != null && count > 0;
-            
+        // 使用目标分片的独立连接，不受调用方事务和当前路由影响
+        try (Connection connection = dataSourceRegistry.getDataSource(dataSourceKey).getConnection()) {
+            boolean exists = tableExists(connection, tableName);
             log.debug("检查表[{}]存在性: {}", tableName, exists);
             return exists;
-            
         } catch (Exception e) {
             log.error("检查表[{}]存在性失败", tableName, e);
             return false;
@@ -102,45 +398,63 @@ public class TableAutoCreateServiceImpl implements TableAutoCreateService {
     
     @Override
     public boolean createTable(String originalTableName, String targetTableName, String dataSourceKey) {
-        try {
-            // 切换到默认数据源获取原始表结构
-            DatabaseContext.setDataSourceKey("default");
-            String createTableSql = getCreateTableSql(originalTableName);
-            
-            if (createTableSql == null) {
-                log.error("无法获取原始表[{}]的建表语句", originalTableName);
-                return false;
-            }
-            
-            // 替换表名
-            String targetCreateSql = createTableSql.replace(
-                    "CREATE TABLE `" + originalTableName + "`", 
-                    "CREATE TABLE `" + targetTableName + "`"
-            );
-            
-            // 切换到目标数据源执行建表语句
-            DatabaseContext.setDataSourceKey(dataSourceKey);
-            return sqlExecuteUtils.executeDDL(targetCreateSql);
-            
-        } catch (Exception e) {
-            log.error("创建表[{}]失败", targetTableName, e);
-            return false;
+        return checkAndCreate(originalTableName, targetTableName, dataSourceKey);
+    }
+    
+    /**
+     * 由原始表的建表语句生成目标表的建表语句，原始表结构每个逻辑表只查询一次
+     */
+    private String getTargetCreateSql(String originalTableName, String targetTableName) {
+        DdlTemplate template = ddlTemplates.get(originalTableName);
+        if (template == null || template.isExpired()) {
+            template = ddlTemplates.compute(originalTableName,
+                    (table, current) -> current != null && !current.isExpired() ? current : loadDdlTemplate(table));
         }
+        if (template == null) {
+            return null;
+        }
+        
+        // 替换表名，其他节点同时创建时不报错
+        return template.sql.replace(
+                "CREATE TABLE `" + originalTableName + "`", 
+                "CREATE TABLE IF NOT EXISTS `" + targetTableName + "`"
+        );
+    }
+    
+    private DdlTemplate loadDdlTemplate(String tableName) {
+        String sql = getCreateTableSql(tableName);
+        return sql == null ? null : new DdlTemplate(sql, System.nanoTime() + TimeUnit.SECONDS.toNanos(ddlTemplateTtl));
     }
     
     /**
      * 获取创建表的SQL语句
+     * 模板表位于默认库，使用默认库连接池的独立连接读取：不经过路由数据源，
+     * 调用方事务中已绑定的分片连接不会被使用
      */
     private String getCreateTableSql(String tableName) {
-        try {
-            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
-            String sql = "SHOW CREATE TABLE " + tableName;
-            
-            return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> rs.getString(2));
-            
-        } catch (Exception e) {
+        try (Connection connection = dataSourceRegistry.getDataSource(ShardingRoute.DEFAULT_DATA_SOURCE_KEY).getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SHOW CREATE TABLE `" + tableName + "`")) {
+            return rs.next() ? rs.getString(2) : null;
+        } catch (SQLException e) {
             log.error("获取表[{}]的建表语句失败", tableName, e);
             return null;
         }
     }
-}
\ No newline at end of file
+    
+    private static final class DdlTemplate {
+        
+        final String sql;
+        
+        final long expireAt;
+        
+        DdlTemplate(String sql, long expireAt) {
+            this.sql = sql;
+            this.expireAt = expireAt;
+        }
+        
+        boolean isExpired() {
+            return System.nanoTime() - expireAt > 0;
+        }
+    }
+}
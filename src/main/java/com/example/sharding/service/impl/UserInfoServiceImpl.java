@@ -3,7 +3,6 @@ package com.example.sharding.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.example.sharding.annotation.ShardingDataSource;
-import com.example.sharding.context.DatabaseContext;
 import com.example.sharding.entity.UserInfo;
 import com.example.sharding.mapper.UserInfoMapper;
 import com.example.sharding.service.TableAutoCreateService;
@@ -60,9 +59,6 @@ public class UserInfoServiceImpl extends ServiceImpl<UserInfoMapper, UserInfo>
     public CompletableFuture<Boolean> saveUserAsync(UserInfo userInfo, String projectId) {
         log.info("异步保存用户信息 - 项目ID: {}, 用户: {}", projectId, userInfo.getUsername());
         
-        // 在异步方法中手动设置上下文（异步配置会自动传递，这里是双重保险）
-        DatabaseContext.setProjectId(projectId);
-        
         boolean result = saveUser(userInfo, projectId);
         return CompletableFuture.completedFuture(result);
     }
@@ -72,9 +68,6 @@ public class UserInfoServiceImpl extends ServiceImpl<UserInfoMapper, UserInfo>
     public CompletableFuture<List<UserInfo>> listByProjectIdAsync(String projectId) {
         log.info("异步查询用户列表 - 项目ID: {}", projectId);
         
-        // 在异步方法中手动设置上下文
-        DatabaseContext.setProjectId(projectId);
-        
         List<UserInfo> result = listByProjectId(projectId);
         return CompletableFuture.completedFuture(result);
     }
@@ -1,15 +1,33 @@
 package com.example.sharding.strategy;
 
+import com.example.sharding.config.ShardingAlgorithmProperties;
+import com.example.sharding.context.ShardingRoute;
 import com.example.sharding.entity.ShardingConfig;
+import com.example.sharding.metadata.LogicalTableRegistry;
 import com.example.sharding.service.ShardingConfigService;
-import com.example.sharding.context.TableContext;
+import com.example.sharding.strategy.algorithm.ShardingAlgorithm;
+import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.StrUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
 /**
  * 基于项目的分片策略实现
+ * 优先使用分片配置表中的记录；没有记录且配置了分库算法时，按算法在内存中计算路由
+ * 配置了分库算法时，配置表记录作为显式覆盖保存在内存中（由配置变更监听全量加载和增量更新），
+ * 路由缓存未命中时不查询配置表
  * 
  * @author example
  */
@@ -17,50 +35,179 @@ import org.springframework.stereotype.Component;
 @Component
 public class ProjectShardingStrategy implements ShardingStrategy {
     
+    /**
+     * 算法路由时可直接作为表后缀的项目ID
+     */
+    private static final Pattern TABLE_SUFFIX = Pattern.compile("[a-z0-9_]+");
+    
     @Autowired
     private ShardingConfigService shardingConfigService;
     
+    @Autowired
+    private LogicalTableRegistry logicalTableRegistry;
+    
+    @Autowired(required = false)
+    private ShardingAlgorithm shardingAlgorithm;
+    
+    @Autowired
+    private ShardingAlgorithmProperties shardingAlgorithmProperties;
+    
+    @Value("${sharding.cache-expire-time:300}")
+    private long cacheExpireTime;
+    
+    @Value("${sharding.route-cache.refresh-ratio:0.8}")
+    private double refreshRatio;
+    
+    @Value("${sharding.route-cache.negative-expire-time:30}")
+    private long negativeExpireTime;
+    
+    @Value("${sharding.route-cache.max-size:10000}")
+    private int maxSize;
+    
+    /**
+     * 路由异步刷新线程池，队列满时放弃本次刷新，下次命中再触发
+     */
+    private ThreadPoolExecutor refreshExecutor;
+    
+    /**
+     * 已解析的项目路由
+     * key: 项目ID
+     */
+    private RouteCache routeCache;
+    
+    /**
+     * 配置表中的显式覆盖，仅在配置了分库算法时使用
+     * key: 项目ID，加载前为null，此时按项目查询配置表
+     */
+    private volatile Map<String, ShardingConfig> overrides;
+    
+    @PostConstruct
+    public void init() {
+        refreshExecutor = new ThreadPoolExecutor(1, 2, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1024),
+                ThreadUtil.newNamedThreadFactory("route-refresh-", true));
+        routeCache = new RouteCache(this::loadRoute, refreshExecutor,
+                cacheExpireTime, refreshRatio, negativeExpireTime, maxSize);
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+    
     @Override
-    public String getDataSourceKey(String projectId) {
+    public ShardingRoute resolve(String projectId) {
         if (StrUtil.isBlank(projectId)) {
             log.warn("项目ID为空，使用默认数据源");
-            return "default";
+            return ShardingRoute.ofDataSource(ShardingRoute.DEFAULT_DATA_SOURCE_KEY);
         }
         
-        ShardingConfig config = shardingConfigService.getConfigByProjectId(projectId);
-        if (config == null) {
-            log.warn("未找到项目[{}]的分片配置，使用默认数据源", projectId);
-            return "default";
+        ShardingRoute route = routeCache.get(projectId);
+        return route != null ? route : ShardingRoute.ofDataSource(ShardingRoute.DEFAULT_DATA_SOURCE_KEY);
+    }
+    
+    /**
+     * 使项目路由缓存失效
+     */
+    public void evict(String projectId) {
+        routeCache.invalidate(projectId);
+    }
+    
+    /**
+     * 应用配置变更：已缓存的项目直接替换为新路由，已删除的配置使缓存失效，
+     * 未缓存的项目不做处理，首次访问时再加载
+     */
+    public void applyConfigChange(ShardingConfig config) {
+        String projectId = config.getProjectId();
+        Map<String, ShardingConfig> current = overrides;
+        if (current != null) {
+            if (config.getDeleted() != null && config.getDeleted() == 1) {
+                current.remove(projectId);
+            } else {
+                current.put(projectId, config);
+            }
+        }
+        if (config.getDeleted() != null && config.getDeleted() == 1) {
+            routeCache.invalidate(projectId);
+            log.info("项目[{}]的分片配置已删除，路由缓存失效", projectId);
+            return;
         }
         
-        String dataSourceKey = "database-" + config.getDatabaseSuffix();
-        log.debug("项目[{}]映射到数据源[{}]", projectId, dataSourceKey);
-        return dataSourceKey;
+        if (routeCache.replaceIfPresent(projectId, buildRoute(config))) {
+            log.info("项目[{}]的分片配置已变更，更新路由缓存", projectId);
+        }
     }
     
-    @Override
-    public String getTableSuffix(String projectId) {
-        if (StrUtil.isBlank(projectId)) {
-            log.warn("项目ID为空，不使用表后缀");
-            return "";
+    /**
+     * 全量加载显式覆盖，之后的变更由applyConfigChange增量应用；未配置分库算法时不保存
+     */
+    public void loadOverrides(List<ShardingConfig> configs) {
+        if (shardingAlgorithm == null) {
+            return;
         }
-        
-        ShardingConfig config = shardingConfigService.getConfigByProjectId(projectId);
-        if (config == null) {
-            log.warn("未找到项目[{}]的分片配置，不使用表后缀", projectId);
-            return "";
+        Map<String, ShardingConfig> loaded = new ConcurrentHashMap<>();
+        configs.forEach(config -> loaded.put(config.getProjectId(), config));
+        overrides = loaded;
+        log.info("加载分片配置显式覆盖{}条，其余项目按分库算法路由", loaded.size());
+    }
+    
+    /**
+     * 是否需要全量加载显式覆盖
+     */
+    public boolean needsOverrides() {
+        return shardingAlgorithm != null;
+    }
+    
+    /**
+     * 路由缓存统计
+     */
+    public Map<String, Object> getRouteCacheStats() {
+        return routeCache.getStats();
+    }
+    
+    /**
+     * 从显式覆盖、配置表或分库算法加载路由，项目不存在时返回null
+     * 显式覆盖已加载时完全在内存中计算，不查询配置表
+     */
+    private ShardingRoute loadRoute(String projectId) {
+        ShardingRoute route;
+        Map<String, ShardingConfig> current = overrides;
+        ShardingConfig config = current != null ? current.get(projectId) : shardingConfigService.getConfigByProjectId(projectId);
+        if (config != null) {
+            route = buildRoute(config);
+        } else if (shardingAlgorithm != null) {
+            String databaseSuffix = shardingAlgorithm.databaseSuffix(projectId);
+            route = ShardingRoute.of(projectId, "database-" + databaseSuffix, algorithmTableSuffix(projectId, databaseSuffix),
+                    logicalTableRegistry.getShardedTables());
+        } else {
+            log.warn("未找到项目[{}]的分片配置，使用默认数据源，不使用表后缀", projectId);
+            return null;
         }
-        
-        String tableSuffix = config.getTableSuffix();
-        log.debug("项目[{}]映射到表后缀[{}]", projectId, tableSuffix);
-        return tableSuffix;
+        log.debug("项目[{}]映射到路由: {}", projectId, route);
+        return route;
     }
     
-    @Override
-    public String getActualTableName(String originalTableName, String projectId) {
-        String tableSuffix = getTableSuffix(projectId);
-        String actualTableName = TableContext.buildActualTableName(originalTableName, tableSuffix);
-        log.debug("表名转换: {} -> {}", originalTableName, actualTableName);
-        return actualTableName;
+    /**
+     * 由分片配置构建路由
+     */
+    public ShardingRoute buildRoute(ShardingConfig config) {
+        return ShardingRoute.of(config.getProjectId(), "database-" + config.getDatabaseSuffix(), config.getTableSuffix(),
+                logicalTableRegistry.getShardedTables());
+    }
+    
+    /**
+     * 算法路由的表后缀
+     * project模式下直接使用项目ID作为表后缀，每个项目独立分表；项目ID只能包含小写字母、数字和下划线，
+     * 不做大小写或字符替换，避免不同项目映射到同一张物理表；其他项目ID需在分片配置表中显式配置
+     *
+     * @throws IllegalArgumentException 项目ID不能直接作为表后缀
+     */
+    private String algorithmTableSuffix(String projectId, String databaseSuffix) {
+        if ("database".equals(shardingAlgorithmProperties.getTableSuffix())) {
+            return databaseSuffix;
+        }
+        if (!TABLE_SUFFIX.matcher(projectId).matches()) {
+            throw new IllegalArgumentException("项目ID[" + projectId + "]不能作为表后缀（只允许小写字母、数字和下划线），请在分片配置表中配置");
+        }
+        return projectId;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,257 @@
+package com.example.sharding.strategy;
+
+import com.example.sharding.context.ShardingRoute;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 项目路由本地缓存
+ * 有界、按TTL过期，缓存"项目不存在"的结果，热点项目在过期前异步刷新，同一项目并发加载只查询一次
+ *
+ * @author example
+ */
+@Slf4j
+public class RouteCache {
+
+    /**
+     * 加载路由，返回null表示项目不存在
+     */
+    private final Function<String, ShardingRoute> loader;
+
+    private final Executor refreshExecutor;
+
+    private final long expireNanos;
+
+    private final long refreshNanos;
+
+    private final long negativeExpireNanos;
+
+    private final int maxSize;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 正在同步加载的项目，保证同一项目只有一个线程查询配置表
+     */
+    private final Map<String, CompletableFuture<ShardingRoute>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param expireSeconds         路由过期时间
+     * @param refreshRatio          存活时间超过过期时间的该比例后，命中时异步刷新
+     * @param negativeExpireSeconds 项目不存在结果的过期时间
+     * @param maxSize               最大缓存项目数
+     */
+    public RouteCache(Function<String, ShardingRoute> loader, Executor refreshExecutor,
+                      long expireSeconds, double refreshRatio, long negativeExpireSeconds, int maxSize) {
+        this.loader = loader;
+        this.refreshExecutor = refreshExecutor;
+        this.expireNanos = expireSeconds * 1_000_000_000L;
+        this.refreshNanos = (long) (expireNanos * refreshRatio);
+        this.negativeExpireNanos = negativeExpireSeconds * 1_000_000_000L;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 获取项目路由，项目不存在时返回null
+     */
+    public ShardingRoute get(String projectId) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(projectId);
+
+        if (entry != null && !entry.isExpired(now)) {
+            if (entry.route == null) {
+                negativeHits.increment();
+                return null;
+            }
+            hits.increment();
+            if (now - entry.loadTime > refreshNanos && entry.refreshing.compareAndSet(false, true)) {
+                refreshAsync(projectId, entry);
+            }
+            return entry.route;
+        }
+
+        misses.increment();
+        try {
+            return load(projectId);
+        } catch (RuntimeException e) {
+            // 配置库不可用时继续使用过期的路由
+            if (entry != null) {
+                log.warn("加载项目[{}]路由失败，继续使用过期路由: {}", projectId, e.getMessage());
+                return entry.route;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 使单个项目的缓存失效
+     */
+    public void invalidate(String projectId) {
+        entries.remove(projectId);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * 直接写入项目路由，route为null表示项目不存在
+     */
+    public void put(String projectId, ShardingRoute route) {
+        entries.put(projectId, new Entry(route, System.nanoTime()));
+        evictIfNecessary();
+    }
+
+    /**
+     * 仅当项目已在缓存中（包括项目不存在的结果）时替换路由，route为null表示项目不存在
+     */
+    public boolean replaceIfPresent(String projectId, ShardingRoute route) {
+        return entries.computeIfPresent(projectId, (key, old) -> new Entry(route, System.nanoTime())) != null;
+    }
+
+    /**
+     * 缓存统计
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum() + negativeHits.sum();
+        long requestCount = hitCount + misses.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("hits", hits.sum());
+        stats.put("negativeHits", negativeHits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("hitRate", requestCount == 0 ? 0D : (double) hitCount / requestCount);
+        stats.put("loadFailures", loadFailures.sum());
+        stats.put("refreshes", refreshes.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    private ShardingRoute load(String projectId) {
+        CompletableFuture<ShardingRoute> future = new CompletableFuture<>();
+        CompletableFuture<ShardingRoute> existing = loading.putIfAbsent(projectId, future);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            ShardingRoute route = loader.apply(projectId);
+            put(projectId, route);
+            future.complete(route);
+            return route;
+        } catch (RuntimeException e) {
+            loadFailures.increment();
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(projectId, future);
+        }
+    }
+
+    private void refreshAsync(String projectId, Entry entry) {
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    ShardingRoute route = loader.apply(projectId);
+                    // 刷新期间缓存可能已被失效或替换，只覆盖原条目
+                    if (entries.replace(projectId, entry, new Entry(route, System.nanoTime()))) {
+                        refreshes.increment();
+                    }
+                } catch (RuntimeException e) {
+                    loadFailures.increment();
+                    entry.refreshing.set(false);
+                    log.warn("异步刷新项目[{}]路由失败: {}", projectId, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    /**
+     * 超出容量时先清理过期条目，仍然超出则淘汰最早加载的条目至容量的90%
+     */
+    private void evictIfNecessary() {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+
+        synchronized (this) {
+            if (entries.size() <= maxSize) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            List<Map.Entry<String, Entry>> candidates = new ArrayList<>(entries.size());
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                if (e.getValue().isExpired(now)) {
+                    if (entries.remove(e.getKey(), e.getValue())) {
+                        evictions.increment();
+                    }
+                } else {
+                    candidates.add(e);
+                }
+            }
+
+            int target = maxSize - maxSize / 10;
+            if (entries.size() <= target) {
+                return;
+            }
+            candidates.sort(Comparator.comparingLong(e -> e.getValue().loadTime));
+            for (int i = 0; i < candidates.size() && entries.size() > target; i++) {
+                if (entries.remove(candidates.get(i).getKey(), candidates.get(i).getValue())) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    private final class Entry {
+
+        /**
+         * 为null表示项目不存在
+         */
+        final ShardingRoute route;
+
+        final long loadTime;
+
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(ShardingRoute route, long loadTime) {
+            this.route = route;
+            this.loadTime = loadTime;
+        }
+
+        boolean isExpired(long now) {
+            return now - loadTime > (route == null ? negativeExpireNanos : expireNanos);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.sharding.strategy;
+
+import com.example.sharding.datasource.DataSourceRegistry;
+import com.example.sharding.entity.ShardingConfig;
+import com.example.sharding.schema.SchemaMigrationEngine;
+import com.example.sharding.service.ShardingConfigService;
+import com.example.sharding.service.TableAutoCreateService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分片配置变更监听
+ * 各节点按update_time增量轮询配置表，只更新发生变更的项目路由，无需全量刷新缓存；
+ * 变更后的路由指向目录之外的数据源时重新读取数据源目录；
+ * 同时轮询schema_migration中已完成的模板表变更，使本节点缓存的建表模板失效
+ *
+ * @author example
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sharding.config-watch", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ShardingConfigWatcher {
+
+    /**
+     * 配置表为空时的起始水位
+     */
+    private static final LocalDateTime INITIAL_WATERMARK = LocalDateTime.of(1970, 1, 2, 0, 0);
+
+    @Autowired
+    private ShardingConfigService shardingConfigService;
+
+    @Autowired
+    private ProjectShardingStrategy projectShardingStrategy;
+
+    @Autowired
+    private SchemaMigrationEngine schemaMigrationEngine;
+
+    @Autowired
+    private TableAutoCreateService tableAutoCreateService;
+
+    @Autowired
+    private DataSourceRegistry dataSourceRegistry;
+
+    /**
+     * 回看时间(秒)：update_time只精确到秒，且事务提交顺序与update_time不一定一致，
+     * 每次轮询都重新读取水位前这段时间内的变更，重复应用是幂等的
+     */
+    @Value("${sharding.config-watch.lookback:5}")
+    private long lookback;
+
+    /**
+     * 已应用变更的最大update_time
+     * update_time由数据库设置（列默认值和更新语句中的NOW()），写入配置的节点时钟偏差不影响水位
+     */
+    private volatile LocalDateTime watermark;
+
+    /**
+     * 已处理的模板表变更的最大完成时间
+     */
+    private volatile LocalDateTime templateWatermark;
+
+    @Scheduled(fixedDelayString = "${sharding.config-watch.interval:5000}")
+    public void poll() {
+        pollConfigChanges();
+        pollTemplateChanges();
+    }
+
+    private void pollConfigChanges() {
+        try {
+            if (watermark == null) {
+                // 启动时路由缓存为空，从当前最新时间开始监听即可；按算法路由时先全量加载显式覆盖
+                LocalDateTime latest = shardingConfigService.getMaxUpdateTime();
+                if (projectShardingStrategy.needsOverrides()) {
+                    projectShardingStrategy.loadOverrides(shardingConfigService.listActiveConfigs());
+                }
+                watermark = latest != null ? latest : INITIAL_WATERMARK;
+                log.info("分片配置变更监听启动，起始水位: {}", watermark);
+                return;
+            }
+
+            List<ShardingConfig> changes = shardingConfigService.listChangedSince(watermark.minusSeconds(lookback));
+            LocalDateTime max = watermark;
+            for (ShardingConfig config : latestPerProject(changes)) {
+                if (!isDeleted(config)) {
+                    String dataSourceKey = projectShardingStrategy.buildRoute(config).getDataSourceKey();
+                    if (!dataSourceRegistry.refreshIfAbsent(dataSourceKey)) {
+                        log.warn("项目[{}]的分片配置指向目录之外的数据源[{}]", config.getProjectId(), dataSourceKey);
+                    }
+                }
+                projectShardingStrategy.applyConfigChange(config);
+            }
+            for (ShardingConfig config : changes) {
+                if (config.getUpdateTime() != null && config.getUpdateTime().isAfter(max)) {
+                    max = config.getUpdateTime();
+                }
+            }
+            watermark = max;
+        } catch (Exception e) {
+            log.warn("轮询分片配置变更失败，下次继续: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 每个项目只保留一条变更：删除后重建的项目在回看窗口内会同时读到已删除的旧记录和新记录，
+     * 两者的update_time可能相同，按读取顺序应用可能让删除覆盖重建；同一项目最多只有一条未删除记录，
+     * 有未删除记录时以它为准，否则取最后一条删除记录
+     */
+    private static Collection<ShardingConfig> latestPerProject(List<ShardingConfig> changes) {
+        Map<String, ShardingConfig> latest = new LinkedHashMap<>();
+        for (ShardingConfig config : changes) {
+            ShardingConfig current = latest.get(config.getProjectId());
+            if (current == null || !isDeleted(config) || isDeleted(current)) {
+                latest.put(config.getProjectId(), config);
+            }
+        }
+        return latest.values();
+    }
+
+    private static boolean isDeleted(ShardingConfig config) {
+        return config.getDeleted() != null && config.getDeleted() == 1;
+    }
+
+    /**
+     * 其他节点完成模板表变更后，本节点丢弃缓存的建表模板，之后新建的分片表使用新结构
+     */
+    private void pollTemplateChanges() {
+        try {
+            LocalDateTime since = templateWatermark != null ? templateWatermark.minusSeconds(lookback) : INITIAL_WATERMARK;
+            Map<String, LocalDateTime> changes = schemaMigrationEngine.listTemplateChangesSince(since);
+            LocalDateTime max = templateWatermark != null ? templateWatermark : INITIAL_WATERMARK;
+            for (Map.Entry<String, LocalDateTime> change : changes.entrySet()) {
+                if (templateWatermark != null) {
+                    // 启动时建表模板缓存为空，无需失效
+                    tableAutoCreateService.refreshDdlTemplate(change.getKey());
+                }
+                if (change.getValue().isAfter(max)) {
+                    max = change.getValue();
+                }
+            }
+            templateWatermark = max;
+        } catch (Exception e) {
+            log.warn("轮询模板表结构变更失败，下次继续: {}", e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.sharding.strategy;
 
+import com.example.sharding.context.ShardingRoute;
+
 /**
  * 分片策略接口
  * 
@@ -7,13 +9,24 @@ package com.example.sharding.strategy;
  */
 public interface ShardingStrategy {
     
+    /**
+     * 根据项目ID解析分片路由
+     * 一次解析得到数据源键、表后缀和各逻辑表的实际表名，返回的路由为缓存的不可变对象
+     * 
+     * @param projectId 项目ID
+     * @return 分片路由，项目ID为空或未配置时返回默认数据源路由
+     */
+    ShardingRoute resolve(String projectId);
+    
     /**
      * 根据项目ID获取数据源键
      * 
      * @param projectId 项目ID
      * @return 数据源键
      */
-    String getDataSourceKey(String projectId);
+    default String getDataSourceKey(String projectId) {
+        return resolve(projectId).getDataSourceKey();
+    }
     
     /**
      * 根据项目ID获取表后缀
@@ -21,7 +34,9 @@ public interface ShardingStrategy {
      * @param projectId 项目ID
      * @return 表后缀
      */
-    String getTableSuffix(String projectId);
+    default String getTableSuffix(String projectId) {
+        return resolve(projectId).getTableSuffix();
+    }
     
     /**
      * 根据原始表名和项目ID获取实际表名
@@ -30,5 +45,7 @@ public interface ShardingStrategy {
      * @param projectId 项目ID
      * @return 实际表名
      */
-    String getActualTableName(String originalTableName, String projectId);
-}
\ No newline at end of file
+    default String getActualTableName(String originalTableName, String projectId) {
+        return resolve(projectId).getActualTableName(originalTableName);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.sharding.strategy.algorithm;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 一致性哈希分库算法
+ * 每个数据库在哈希环上放置多个虚拟节点，项目映射到顺时针方向的第一个节点；
+ * 新增数据库时只有落在新节点区间内的项目会迁移
+ * 
+ * @author example
+ */
+public class ConsistentHashShardingAlgorithm implements ShardingAlgorithm {
+    
+    /**
+     * 虚拟节点哈希值（升序）
+     */
+    private final int[] ring;
+    
+    /**
+     * 与ring对应的数据库后缀
+     */
+    private final String[] nodes;
+    
+    public ConsistentHashShardingAlgorithm(List<String> databases, int virtualNodes) {
+        if (databases.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("一致性哈希分库算法至少需要一个数据库和一个虚拟节点");
+        }
+        
+        TreeMap<Integer, String> sorted = new TreeMap<>();
+        for (String database : databases) {
+            for (int i = 0; i < virtualNodes; i++) {
+                sorted.putIfAbsent(HashFunctions.hash(database + "#VN" + i), database);
+            }
+        }
+        
+        this.ring = new int[sorted.size()];
+        this.nodes = new String[sorted.size()];
+        int index = 0;
+        for (Map.Entry<Integer, String> entry : sorted.entrySet()) {
+            ring[index] = entry.getKey();
+            nodes[index] = entry.getValue();
+            index++;
+        }
+    }
+    
+    @Override
+    public String databaseSuffix(String projectId) {
+        int hash = HashFunctions.hash(projectId);
+        
+        // 二分查找第一个不小于hash的虚拟节点，越过末尾时回到环首
+        int low = 0;
+        int high = ring.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ring[mid] < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return nodes[low == ring.length ? 0 : low];
+    }
+}
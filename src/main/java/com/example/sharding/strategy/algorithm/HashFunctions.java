@@ -0,0 +1,21 @@
+package com.example.sharding.strategy.algorithm;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 分片哈希函数
+ * 使用MurmurHash3，分布均匀且与JVM的String.hashCode实现无关
+ * 
+ * @author example
+ */
+final class HashFunctions {
+    
+    private HashFunctions() {
+    }
+    
+    static int hash(String key) {
+        return MurmurHash.hash32(key.getBytes(StandardCharsets.UTF_8));
+    }
+}
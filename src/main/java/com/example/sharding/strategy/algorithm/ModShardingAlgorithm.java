@@ -0,0 +1,25 @@
+package com.example.sharding.strategy.algorithm;
+
+import java.util.List;
+
+/**
+ * 取模哈希分库算法
+ * 
+ * @author example
+ */
+public class ModShardingAlgorithm implements ShardingAlgorithm {
+    
+    private final String[] databases;
+    
+    public ModShardingAlgorithm(List<String> databases) {
+        if (databases.isEmpty()) {
+            throw new IllegalArgumentException("取模分库算法至少需要配置一个数据库");
+        }
+        this.databases = databases.toArray(new String[0]);
+    }
+    
+    @Override
+    public String databaseSuffix(String projectId) {
+        return databases[Math.floorMod(HashFunctions.hash(projectId), databases.length)];
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.sharding.strategy.algorithm;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * 范围分库算法
+ * 按项目ID的字典序区间分库，每个区间配置起始值（包含）和数据库
+ * 
+ * @author example
+ */
+public class RangeShardingAlgorithm implements ShardingAlgorithm {
+    
+    /**
+     * 区间起始值 -> 数据库后缀
+     */
+    private final NavigableMap<String, String> ranges;
+    
+    public RangeShardingAlgorithm(Map<String, String> ranges) {
+        this.ranges = new TreeMap<>(ranges);
+        if (!this.ranges.containsKey("")) {
+            throw new IllegalArgumentException("范围分库算法必须配置起始值为空字符串的首个区间");
+        }
+    }
+    
+    @Override
+    public String databaseSuffix(String projectId) {
+        return ranges.floorEntry(projectId).getValue();
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.sharding.strategy.algorithm;
+
+/**
+ * 分库算法
+ * 纯内存计算项目所在的数据库，无需查询分片配置表
+ * 
+ * @author example
+ */
+public interface ShardingAlgorithm {
+    
+    /**
+     * 计算项目所在数据库的后缀
+     * 
+     * @param projectId 项目ID
+     * @return 数据库后缀，如001
+     */
+    String databaseSuffix(String projectId);
+}
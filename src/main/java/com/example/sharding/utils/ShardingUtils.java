@@ -1,6 +1,7 @@
 package com.example.sharding.utils;
 
-import com.example.sharding.context.DatabaseContext;
+import com.example.sharding.context.ShardingContext;
+import com.example.sharding.context.ShardingRoute;
 import com.example.sharding.strategy.ShardingStrategy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,38 +30,33 @@ public class ShardingUtils {
             return;
         }
         
-        DatabaseContext.setProjectId(projectId);
-        
-        String dataSourceKey = shardingStrategy.getDataSourceKey(projectId);
-        String tableSuffix = shardingStrategy.getTableSuffix(projectId);
-        
-        DatabaseContext.setDataSourceKey(dataSourceKey);
-        DatabaseContext.setTableSuffix(tableSuffix);
+        ShardingRoute route = shardingStrategy.resolve(projectId);
+        ShardingContext.set(route);
         
         log.debug("手动设置分片上下文 - 项目ID: {}, 数据源: {}, 表后缀: {}", 
-                 projectId, dataSourceKey, tableSuffix);
+                 projectId, route.getDataSourceKey(), route.getTableSuffix());
     }
     
     /**
      * 清理分片上下文
      */
     public void clearShardingContext() {
-        DatabaseContext.clear();
+        ShardingContext.clear();
         log.debug("清理分片上下文");
     }
     
     /**
-     * 在指定项目上下文中执行操作
+     * 在指定项目上下文中执行操作，执行完成后恢复外层上下文
      * 
      * @param projectId 项目ID
      * @param runnable 要执行的操作
      */
     public void executeInContext(String projectId, Runnable runnable) {
+        ShardingRoute previous = ShardingContext.push(shardingStrategy.resolve(projectId));
         try {
-            setShardingContext(projectId);
             runnable.run();
         } finally {
-            clearShardingContext();
+            ShardingContext.pop(previous);
         }
     }
     
@@ -68,10 +64,14 @@ public class ShardingUtils {
      * 获取当前上下文信息的字符串表示
      */
     public String getCurrentContextInfo() {
-        DatabaseContext.ContextInfo contextInfo = DatabaseContext.getContextInfo();
+        ShardingRoute route = ShardingContext.current();
+        if (route == null) {
+            return "项目ID: null, 数据源: null, 表后缀: null";
+        }
         return String.format("项目ID: %s, 数据源: %s, 表后缀: %s", 
-                            contextInfo.getProjectId(), 
-                            contextInfo.getDataSourceKey(), 
-                            contextInfo.getTableSuffix());
+                            route.getProjectId(), 
+                            route.getDataSourceKey(), 
+                            route.getTableSuffix());
     }
+
 }
\ No newline at end of file
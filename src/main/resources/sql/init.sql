@@ -17,9 +17,28 @@ CREATE TABLE sharding_config (
     update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     deleted TINYINT DEFAULT 0 COMMENT '是否删除（0:未删除 1:已删除）',
     INDEX idx_project_id (project_id),
-    INDEX idx_create_time (create_time)
+    INDEX idx_create_time (create_time),
+    INDEX idx_update_time (update_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='分片配置表';
 
+-- 创建分片表结构变更进度表
+DROP TABLE IF EXISTS schema_migration;
+CREATE TABLE schema_migration (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    migration_id VARCHAR(64) NOT NULL COMMENT '变更ID',
+    logical_table VARCHAR(64) NOT NULL COMMENT '逻辑表名',
+    data_source_key VARCHAR(64) NOT NULL COMMENT '数据源键',
+    table_name VARCHAR(128) NOT NULL COMMENT '物理表名',
+    ddl VARCHAR(2000) NOT NULL COMMENT 'ALTER TABLE之后的语句',
+    status VARCHAR(16) NOT NULL COMMENT '状态（RUNNING/DONE/FAILED）',
+    error_message VARCHAR(512) COMMENT '错误信息',
+    elapsed_ms BIGINT COMMENT '耗时(毫秒)',
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_migration_table (migration_id, data_source_key, table_name),
+    INDEX idx_migration_status (migration_id, status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='分片表结构变更进度表';
+
 -- 创建用户信息原始表（作为模板）
 DROP TABLE IF EXISTS user_info;
 CREATE TABLE user_info (
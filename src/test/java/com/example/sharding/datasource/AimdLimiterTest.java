@@ -0,0 +1,48 @@
+package com.example.sharding.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AIMD并发限制测试
+ */
+public class AimdLimiterTest {
+
+    @Test
+    public void testRejectBeyondLimit() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 10, 0.5, TimeUnit.SECONDS.toNanos(1));
+        long first = limiter.tryAcquire();
+        long second = limiter.tryAcquire();
+        assertTrue(first >= 0 && second >= 0);
+        assertEquals(-1, limiter.tryAcquire());
+
+        limiter.release(first, true);
+        assertTrue(limiter.tryAcquire() >= 0);
+    }
+
+    @Test
+    public void testMultiplicativeDecreaseOnFailure() {
+        AimdLimiter limiter = new AimdLimiter(8, 2, 10, 0.5, TimeUnit.SECONDS.toNanos(1));
+        limiter.release(limiter.tryAcquire(), false);
+        assertEquals(4, limiter.getLimit());
+        limiter.release(limiter.tryAcquire(), false);
+        limiter.release(limiter.tryAcquire(), false);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void testAdditiveIncreaseWhenSaturated() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 3, 0.5, TimeUnit.SECONDS.toNanos(1));
+        for (int i = 0; i < 20; i++) {
+            long first = limiter.tryAcquire();
+            long second = limiter.tryAcquire();
+            limiter.release(first, true);
+            limiter.release(second, true);
+        }
+        assertEquals(3, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
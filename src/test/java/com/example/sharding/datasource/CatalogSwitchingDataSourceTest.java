@@ -0,0 +1,42 @@
+package com.example.sharding.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+/**
+ * 切换库数据源测试
+ */
+public class CatalogSwitchingDataSourceTest {
+
+    @Test
+    public void testSwitchOnlyWhenCatalogDiffers() throws SQLException {
+        Connection connection = mock(Connection.class);
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenReturn(connection);
+
+        when(connection.getCatalog()).thenReturn("database_001");
+        new CatalogSwitchingDataSource(pool, "database_001").getConnection();
+        verify(connection, never()).setCatalog(anyString());
+
+        new CatalogSwitchingDataSource(pool, "database_002").getConnection();
+        verify(connection).setCatalog("database_002");
+    }
+
+    @Test
+    public void testCloseConnectionWhenSwitchFails() throws SQLException {
+        Connection connection = mock(Connection.class);
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.getCatalog()).thenReturn("database_001");
+        doThrow(new SQLException("Unknown database")).when(connection).setCatalog("missing");
+
+        assertThrows(SQLException.class, () -> new CatalogSwitchingDataSource(pool, "missing").getConnection());
+        verify(connection).close();
+    }
+}
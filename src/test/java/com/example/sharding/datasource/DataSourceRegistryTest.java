@@ -0,0 +1,121 @@
+package com.example.sharding.datasource;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 数据源注册中心测试
+ */
+public class DataSourceRegistryTest {
+
+    private static MockEnvironment environment() {
+        return new MockEnvironment()
+                .withProperty("spring.datasource.dynamic.database-001.url", "jdbc:mysql://localhost:3306/database_001")
+                .withProperty("spring.datasource.dynamic.database-001.max-active", "7")
+                .withProperty("spring.datasource.dynamic.database-002.url", "jdbc:mysql://localhost:3306/database_002");
+    }
+
+    @Test
+    public void testLazyCreateAndReject() {
+        DataSource defaultDataSource = new DruidDataSource();
+        DataSourceRegistry registry = new DataSourceRegistry(environment(), defaultDataSource, 1800, false, null);
+
+        assertSame(defaultDataSource, registry.getDataSource("default"));
+        assertTrue(registry.getOpenDataSources().isEmpty());
+
+        DruidDataSource dataSource = (DruidDataSource) registry.getDataSource("database-001");
+        assertEquals("jdbc:mysql://localhost:3306/database_001", dataSource.getUrl());
+        assertEquals(7, dataSource.getMaxActive());
+        assertSame(dataSource, registry.getDataSource("database-001"));
+        assertEquals(1, registry.getOpenDataSources().size());
+
+        assertThrows(IllegalStateException.class, () -> registry.getDataSource("database-999"));
+        registry.destroy();
+    }
+
+    @Test
+    public void testRefreshCatalogForUnknownKey() {
+        MockEnvironment environment = environment();
+        DataSourceRegistry registry = new DataSourceRegistry(environment, new DruidDataSource(), 1800, false, null);
+        assertFalse(registry.contains("database-009"));
+
+        // 运行时属性源中新增的分片库
+        environment.setProperty("spring.datasource.dynamic.database-009.url", "jdbc:mysql://localhost:3306/database_009");
+        DruidDataSource dataSource = (DruidDataSource) registry.getDataSource("database-009");
+        assertEquals("jdbc:mysql://localhost:3306/database_009", dataSource.getUrl());
+        assertTrue(registry.getCatalog().contains("database-009"));
+
+        // 间隔内不再因未知数据源重新读取目录
+        environment.setProperty("spring.datasource.dynamic.database-010.url", "jdbc:mysql://localhost:3306/database_010");
+        assertFalse(registry.refreshIfAbsent("database-011"));
+        assertThrows(IllegalStateException.class, () -> registry.getDataSource("database-010"));
+        registry.destroy();
+    }
+
+    @Test
+    public void testEvictIdlePools() throws InterruptedException {
+        DataSourceRegistry registry = new DataSourceRegistry(environment(), new DruidDataSource(), 0, false, null);
+
+        DruidDataSource first = (DruidDataSource) registry.getDataSource("database-002");
+        Thread.sleep(5);
+        registry.evictIdlePools();
+        assertTrue(registry.getOpenDataSources().isEmpty());
+
+        assertNotSame(first, registry.getDataSource("database-002"));
+        registry.destroy();
+    }
+
+    @Test
+    public void testPeekDoesNotOpenOrKeepPool() throws InterruptedException {
+        DataSourceRegistry registry = new DataSourceRegistry(environment(), new DruidDataSource(), 0, false, null);
+
+        assertNull(registry.peekDataSource("database-001"));
+        assertTrue(registry.getOpenDataSources().isEmpty());
+
+        DataSource dataSource = registry.getDataSource("database-001");
+        Thread.sleep(5);
+        assertSame(dataSource, registry.peekDataSource("database-001"));
+        // 查看不刷新空闲计时
+        registry.evictIdlePools();
+        assertNull(registry.peekDataSource("database-001"));
+        registry.destroy();
+    }
+
+    @Test
+    public void testSchemaSwitchingSharesPoolPerServer() {
+        MockEnvironment environment = environment()
+                .withProperty("spring.datasource.dynamic.database-003.url", "jdbc:mysql://otherhost:3306/database_003");
+        DataSourceRegistry registry = new DataSourceRegistry(environment, new DruidDataSource(), 1800, true, null);
+
+        CatalogSwitchingDataSource first = (CatalogSwitchingDataSource) registry.getDataSource("database-001");
+        CatalogSwitchingDataSource second = (CatalogSwitchingDataSource) registry.getDataSource("database-002");
+        CatalogSwitchingDataSource third = (CatalogSwitchingDataSource) registry.getDataSource("database-003");
+
+        assertEquals("database_001", first.getSchema());
+        assertEquals("database_002", second.getSchema());
+        assertSame(first.getTargetDataSource(), second.getTargetDataSource());
+        assertNotSame(first.getTargetDataSource(), third.getTargetDataSource());
+        assertEquals(2, registry.getOpenDataSources().size());
+        registry.destroy();
+    }
+
+    @Test
+    public void testReadDataSourceUsesReplicas() {
+        MockEnvironment environment = environment()
+                .withProperty("spring.datasource.dynamic.database-001.replicas[0].url", "jdbc:mysql://replica:3306/database_001");
+        DataSourceRegistry registry = new DataSourceRegistry(environment, new DruidDataSource(), 1800, false, null);
+
+        ReplicaSet.Replica replica = (ReplicaSet.Replica) registry.getReadDataSource("database-001");
+        assertEquals("jdbc:mysql://replica:3306/database_001", replica.dataSource.getUrl());
+        // 未填写的配置继承主库
+        assertEquals(7, replica.dataSource.getMaxActive());
+        // 没有从库的数据源直接使用主库
+        assertSame(registry.getDataSource("database-002"), registry.getReadDataSource("database-002"));
+        registry.destroy();
+    }
+}
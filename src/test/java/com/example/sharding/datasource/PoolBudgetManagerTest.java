@@ -0,0 +1,79 @@
+package com.example.sharding.datasource;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 连接池预算分配测试
+ */
+public class PoolBudgetManagerTest {
+
+    @Test
+    public void testGrowAndShrinkWithinBudget() {
+        int[] result = PoolBudgetManager.allocate(
+                new int[]{20, 20}, new int[]{20, 1}, new long[]{5, 0}, new int[]{2, 2}, 100);
+        assertEquals(25, result[0]);
+        assertEquals(18, result[1]);
+    }
+
+    @Test
+    public void testHotPoolTakesFromColdPoolOverBudget() {
+        int[] result = PoolBudgetManager.allocate(
+                new int[]{50, 50}, new int[]{50, 1}, new long[]{10, 0}, new int[]{2, 2}, 100);
+        assertTrue(result[0] > 50);
+        assertTrue(result[1] < 50);
+        assertTrue(result[0] + result[1] <= 100);
+    }
+
+    @Test
+    public void testNeverBelowFloorOrActive() {
+        int[] result = PoolBudgetManager.allocate(
+                new int[]{40, 40, 40}, new int[]{30, 30, 0}, new long[]{1, 1, 0}, new int[]{5, 5, 5}, 50);
+        assertEquals(30, result[0]);
+        assertEquals(30, result[1]);
+        assertEquals(5, result[2]);
+    }
+
+    @Test
+    public void testBudgetCoversDefaultAndReplicaPoolsPerHost() {
+        DruidDataSource defaultPool = pool("jdbc:mysql://localhost:3306/default_db", 40);
+        DruidDataSource first = pool("jdbc:mysql://localhost:3306/database_001", 50);
+        DruidDataSource second = pool("jdbc:mysql://localhost:3306/database_002", 50);
+        DruidDataSource replica = pool("jdbc:mysql://replica:3306/database_001", 30);
+        Map<String, DruidDataSource> primaries = new LinkedHashMap<>();
+        primaries.put("database-001", first);
+        primaries.put("database-002", second);
+        DataSourceRegistry registry = mock(DataSourceRegistry.class);
+        when(registry.getOpenDataSources()).thenReturn(primaries);
+        when(registry.getOpenReplicaDataSources()).thenReturn(Collections.singletonMap("database-001#replica0", replica));
+        when(registry.getDefaultPool()).thenReturn(defaultPool);
+
+        PoolBudgetManager manager = new PoolBudgetManager();
+        ReflectionTestUtils.setField(manager, "dataSourceRegistry", registry);
+        ReflectionTestUtils.setField(manager, "maxConnectionsPerHost", 100);
+        ReflectionTestUtils.setField(manager, "minActive", 2);
+        manager.rebalance();
+
+        // 默认数据源占用同一实例的40个连接且不调整，两个分片连接池分配剩余的60个
+        assertEquals(40, defaultPool.getMaxActive());
+        assertTrue(first.getMaxActive() + second.getMaxActive() <= 60);
+        // 从库所在实例单独计算预算
+        assertEquals(27, replica.getMaxActive());
+        assertEquals(4, manager.getDecisions().size());
+    }
+
+    private static DruidDataSource pool(String url, int maxActive) {
+        DruidDataSource dataSource = new DruidDataSource();
+        dataSource.setUrl(url);
+        dataSource.setMaxActive(maxActive);
+        return dataSource;
+    }
+}
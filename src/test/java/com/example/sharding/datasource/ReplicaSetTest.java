@@ -0,0 +1,60 @@
+package com.example.sharding.datasource;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLNonTransientConnectionException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 从库组测试
+ */
+public class ReplicaSetTest {
+
+    @Test
+    public void testRoundRobinSkipsUnhealthy() {
+        ReplicaSet replicaSet = new ReplicaSet("database-001",
+                Arrays.asList(new DruidDataSource(), new DruidDataSource(), new DruidDataSource()), false);
+
+        ReplicaSet.Replica first = replicaSet.choose();
+        ReplicaSet.Replica second = replicaSet.choose();
+        assertNotSame(first, second);
+
+        second.healthy = false;
+        for (int i = 0; i < 6; i++) {
+            assertNotSame(second, replicaSet.choose());
+        }
+    }
+
+    @Test
+    public void testNoHealthyReplica() {
+        ReplicaSet replicaSet = new ReplicaSet("database-001", Arrays.asList(new DruidDataSource()), true);
+        replicaSet.choose().healthy = false;
+        assertNull(replicaSet.choose());
+    }
+
+    @Test
+    public void testLeastInFlight() {
+        ReplicaSet replicaSet = new ReplicaSet("database-001",
+                Arrays.asList(new DruidDataSource(), new DruidDataSource()), true);
+        ReplicaSet.Replica busy = replicaSet.choose();
+        busy.inFlight.set(3);
+        assertNotSame(busy, replicaSet.choose());
+    }
+
+    @Test
+    public void testConnectionErrorEjectsOnlyThatReplica() {
+        ReplicaSet replicaSet = new ReplicaSet("database-001",
+                Arrays.asList(new DruidDataSource(), new DruidDataSource()), false);
+        ReplicaSet.Replica failed = replicaSet.choose();
+        failed.onError(new SQLNonTransientConnectionException("Communications link failure", "08S01"));
+
+        assertFalse(failed.healthy);
+        assertTrue(failed.getName().startsWith("database-001#replica"));
+        for (int i = 0; i < 4; i++) {
+            assertNotSame(failed, replicaSet.choose());
+        }
+    }
+}
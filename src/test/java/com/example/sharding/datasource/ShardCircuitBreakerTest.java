@@ -0,0 +1,102 @@
+package com.example.sharding.datasource;
+
+import com.alibaba.druid.filter.FilterChain;
+import com.alibaba.druid.filter.FilterEventAdapter;
+import com.alibaba.druid.proxy.jdbc.PreparedStatementProxy;
+import com.example.sharding.context.ShardingContext;
+import com.example.sharding.context.ShardingRoute;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 分片熔断器测试
+ */
+public class ShardCircuitBreakerTest {
+
+    private static final SQLException LINK_FAILURE = new SQLException("Communications link failure", "08S01");
+
+    @Test
+    public void testOpenAfterThresholdAndProbe() throws InterruptedException {
+        ShardCircuitBreaker breaker = new ShardCircuitBreaker(3, 20_000_000L);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.onFailure(LINK_FAILURE);
+        }
+        assertEquals(ShardCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        Thread.sleep(30);
+        // 只放行一个探测请求
+        assertTrue(breaker.allowRequest());
+        assertEquals(ShardCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        breaker.onFailure(LINK_FAILURE);
+        assertEquals(ShardCircuitBreaker.State.OPEN, breaker.getState());
+
+        Thread.sleep(30);
+        assertTrue(breaker.allowRequest());
+        breaker.onSuccess();
+        assertEquals(ShardCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testSuccessResetsConsecutiveFailures() {
+        ShardCircuitBreaker breaker = new ShardCircuitBreaker(3, 20_000_000L);
+        breaker.onFailure(LINK_FAILURE);
+        breaker.onFailure(LINK_FAILURE);
+        breaker.onSuccess();
+        breaker.onFailure(LINK_FAILURE);
+        assertEquals(ShardCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testOnlyConnectionErrorsCount() {
+        assertTrue(ShardHealthTracker.isConnectionError(LINK_FAILURE));
+        assertTrue(ShardHealthTracker.isConnectionError(new SQLNonTransientConnectionException("connection closed")));
+        assertTrue(ShardHealthTracker.isConnectionError(new SQLRecoverableException("socket reset")));
+        assertFalse(ShardHealthTracker.isConnectionError(new SQLTimeoutException("Statement cancelled due to timeout", "HY008")));
+        assertFalse(ShardHealthTracker.isConnectionError(new SQLSyntaxErrorException("bad sql", "42000")));
+        assertFalse(ShardHealthTracker.isConnectionError(new SQLException("Duplicate entry", "23000")));
+    }
+
+    @Test
+    public void testQueryTimeoutLeavesBreakerClosed() throws SQLException {
+        ShardHealthTracker tracker = new ShardHealthTracker();
+        ReflectionTestUtils.setField(tracker, "enabled", true);
+        ReflectionTestUtils.setField(tracker, "failureThreshold", 1);
+        ReflectionTestUtils.setField(tracker, "openDuration", 60000L);
+        FilterEventAdapter filter = (FilterEventAdapter) tracker.getStatementFilter();
+        PreparedStatementProxy statement = mock(PreparedStatementProxy.class);
+        FilterChain chain = mock(FilterChain.class);
+
+        ShardingRoute previous = ShardingContext.push(ShardingRoute.ofDataSource("database-001"));
+        try {
+            // 语句超时：连接仍可用，熔断器保持关闭
+            when(chain.preparedStatement_execute(statement))
+                    .thenThrow(new SQLTimeoutException("Statement cancelled due to timeout", "HY008"));
+            assertThrows(SQLTimeoutException.class, () -> filter.preparedStatement_execute(chain, statement));
+            tracker.checkAvailable("database-001");
+            assertEquals(ShardCircuitBreaker.State.CLOSED, tracker.getStates().get("database-001").get("state"));
+
+            // 连接断开计入失败
+            reset(chain);
+            when(chain.preparedStatement_execute(statement)).thenThrow(LINK_FAILURE);
+            assertThrows(SQLException.class, () -> filter.preparedStatement_execute(chain, statement));
+            assertEquals(ShardCircuitBreaker.State.OPEN, tracker.getStates().get("database-001").get("state"));
+            assertThrows(ShardUnavailableException.class, () -> tracker.checkAvailable("database-001"));
+        } finally {
+            ShardingContext.pop(previous);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.sharding.interceptor;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.example.sharding.context.ShardingContext;
+import com.example.sharding.context.ShardingRoute;
+import com.example.sharding.metadata.LogicalTableRegistry;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 动态表名拦截器测试
+ * 经由真实的MyBatis执行链执行映射语句，检查实际预编译的SQL
+ *
+ * @author example
+ */
+class DynamicTableInterceptorTest {
+
+    private static final List<String> TABLES = Arrays.asList("order_info", "order_detail", "user_info");
+
+    @Test
+    void rewriteSelectStreamedThroughResultHandler() throws Exception {
+        List<String> prepared = new CopyOnWriteArrayList<>();
+        SqlSessionFactory sqlSessionFactory = buildSqlSessionFactory(prepared);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("projectIds", Arrays.asList("p1", "p2"));
+        params.put("status", 1);
+        params.put("sourceKey", "database-001:x");
+        params.put("limit", 10);
+
+        ShardingRoute previous = ShardingContext.push(ShardingRoute.of(null, "database-001", "x", TABLES));
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            session.select("com.example.sharding.mapper.OrderMapper.scanOrderDetailByStatusAcrossProjects",
+                    params, context -> {
+                    });
+        } finally {
+            ShardingContext.pop(previous);
+        }
+
+        assertThat(prepared).hasSize(1);
+        assertThat(prepared.get(0))
+                .contains("FROM order_info_x o")
+                .contains("JOIN order_detail_x od")
+                .contains("JOIN user_info_x u")
+                .doesNotContain("FROM order_info o");
+    }
+
+    /**
+     * 按应用的方式组装拦截器链，连接记录每条预编译的SQL并返回空结果
+     */
+    private SqlSessionFactory buildSqlSessionFactory(List<String> prepared) throws Exception {
+        Set<String> sharded = new HashSet<>(TABLES);
+        LogicalTableRegistry logicalTableRegistry = mock(LogicalTableRegistry.class);
+        when(logicalTableRegistry.isSharded(anyString())).thenAnswer(invocation -> sharded.contains(invocation.<String>getArgument(0)));
+
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.getUpdateCount()).thenReturn(-1);
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            prepared.add(invocation.getArgument(0));
+            return statement;
+        });
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setEnvironment(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        interceptor.addInnerInterceptor(new DynamicTableInterceptor(logicalTableRegistry));
+        configuration.addInterceptor(interceptor);
+
+        String resource = "mapper/OrderMapper.xml";
+        try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+            new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+        return new SqlSessionFactoryBuilder().build(configuration);
+    }
+}
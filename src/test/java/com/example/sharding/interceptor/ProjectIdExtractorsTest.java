@@ -0,0 +1,82 @@
+package com.example.sharding.interceptor;
+
+import com.example.sharding.annotation.ShardingDataSource;
+import com.example.sharding.entity.Order;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 项目ID提取器解析测试
+ *
+ * @author example
+ */
+class ProjectIdExtractorsTest {
+
+    @Test
+    void extractByParameterName() throws Exception {
+        ProjectIdExtractor extractor = compile("byName", String.class, String.class);
+
+        assertThat(extractor.extract(new Object[]{"ORDER-1", "project_001"})).isEqualTo("project_001");
+    }
+
+    @Test
+    void extractBySpelPath() throws Exception {
+        ProjectIdExtractor extractor = compile("bySpel", String.class, Order.class);
+
+        assertThat(extractor.extract(new Object[]{"ORDER-1", new Order().setProjectId("project_002")})).isEqualTo("project_002");
+        assertThat(extractor.extract(new Object[]{"ORDER-1", null})).isNull();
+    }
+
+    @Test
+    void extractByComplexSpel() throws Exception {
+        ProjectIdExtractor extractor = compile("byComplexSpel", String.class, String.class);
+
+        assertThat(extractor.extract(new Object[]{"project", "003"})).isEqualTo("project_003");
+    }
+
+    @Test
+    void extractFromRequestBean() throws Exception {
+        ProjectIdExtractor extractor = compile("byRequestBean", String.class, Order.class);
+
+        assertThat(extractor.extract(new Object[]{"ORDER-1", new Order().setProjectId("project_001")})).isEqualTo("project_001");
+    }
+
+    @Test
+    void neverFallBackToFirstStringArgument() throws Exception {
+        ProjectIdExtractor extractor = compile("noProjectId", String.class);
+
+        assertThat(extractor).isSameAs(ProjectIdExtractor.NONE);
+        assertThat(extractor.extract(new Object[]{"ORDER-1"})).isNull();
+    }
+
+    private ProjectIdExtractor compile(String name, Class<?>... parameterTypes) throws Exception {
+        Method method = Samples.class.getDeclaredMethod(name, parameterTypes);
+        return ProjectIdExtractors.compile(method, method.getAnnotation(ShardingDataSource.class));
+    }
+
+    static class Samples {
+
+        @ShardingDataSource
+        void byName(String orderNo, String projectId) {
+        }
+
+        @ShardingDataSource("#order.projectId")
+        void bySpel(String orderNo, Order order) {
+        }
+
+        @ShardingDataSource("#prefix + '_' + #p1")
+        void byComplexSpel(String prefix, String suffix) {
+        }
+
+        @ShardingDataSource
+        void byRequestBean(String orderNo, Order order) {
+        }
+
+        @ShardingDataSource
+        void noProjectId(String orderNo) {
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.sharding.interceptor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 表名改写计划测试
+ *
+ * @author example
+ */
+class TableRewritePlanTest {
+
+    @Test
+    void rewriteJoinAndCommaJoin() {
+        TableRewritePlan plan = TableRewritePlan.compile(
+                "SELECT * FROM order_info o, order_detail od INNER JOIN user_info u ON o.user_id = u.id");
+
+        assertThat(plan.getTableNames()).containsExactly("order_info", "order_detail", "user_info");
+        assertThat(plan.rewrite("001")).isEqualTo(
+                "SELECT * FROM order_info_001 o, order_detail_001 od INNER JOIN user_info_001 u ON o.user_id = u.id");
+    }
+
+    @Test
+    void rewriteBacktickAndSchemaQualifiedName() {
+        TableRewritePlan plan = TableRewritePlan.compile("SELECT * FROM `db`.`user_info` u LEFT JOIN user_profile p ON u.id = p.user_id");
+
+        assertThat(plan.rewrite("002")).isEqualTo(
+                "SELECT * FROM `db`.`user_info_002` u LEFT JOIN user_profile_002 p ON u.id = p.user_id");
+    }
+
+    @Test
+    void rewriteSubqueryAndDelete() {
+        assertThat(TableRewritePlan.compile("UPDATE order_detail SET deleted = 1 WHERE order_id IN (SELECT id FROM order_info)")
+                .rewrite("003"))
+                .isEqualTo("UPDATE order_detail_003 SET deleted = 1 WHERE order_id IN (SELECT id FROM order_info_003)");
+        assertThat(TableRewritePlan.compile("DELETE FROM order_info WHERE id = ?").rewrite("003"))
+                .isEqualTo("DELETE FROM order_info_003 WHERE id = ?");
+    }
+
+    @Test
+    void rewriteOnlyShardedTables() {
+        TableRewritePlan plan = TableRewritePlan.compile(
+                "SELECT * FROM user_info u JOIN sharding_config c ON u.project_id = c.project_id",
+                "user_info"::equals);
+
+        assertThat(plan.getTableNames()).containsExactly("user_info");
+        assertThat(plan.rewrite("001")).isEqualTo(
+                "SELECT * FROM user_info_001 u JOIN sharding_config c ON u.project_id = c.project_id");
+        assertThat(TableRewritePlan.compile("SELECT COUNT(*) FROM information_schema.tables", "user_info"::equals).isEmpty())
+                .isTrue();
+    }
+
+    @Test
+    void keepExistingSuffix() {
+        assertThat(TableRewritePlan.compile("SELECT * FROM user_info_001").rewrite("001"))
+                .isEqualTo("SELECT * FROM user_info_001");
+    }
+
+    @Test
+    void noTableLeavesSqlUntouched() {
+        TableRewritePlan plan = TableRewritePlan.compile("SELECT 1");
+
+        assertThat(plan.isEmpty()).isTrue();
+        assertThat(plan.rewrite("001")).isEqualTo("SELECT 1");
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.sharding.metadata;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 逻辑表注册中心测试
+ */
+public class LogicalTableRegistryTest {
+
+    private static final String MAPPER_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<mapper namespace=\"com.example.sharding.mapper.ProfileMapper\">\n"
+            + "    <sql id=\"profileJoin\">\n"
+            + "        LEFT JOIN user_profile p ON u.id = p.user_id\n"
+            + "        <include refid=\"addressJoin\"/>\n"
+            + "    </sql>\n"
+            + "    <sql id=\"addressJoin\">LEFT JOIN user_address a ON u.id = a.user_id</sql>\n"
+            + "    <sql id=\"loop\"><include refid=\"loop\"/></sql>\n"
+            + "    <select id=\"selectWithProfile\" resultType=\"map\">\n"
+            + "        SELECT * FROM user_info u\n"
+            + "        <include refid=\"com.example.sharding.mapper.ProfileMapper.profileJoin\"/>\n"
+            + "        <where><if test=\"id != null\">u.id = #{id}</if></where>\n"
+            + "    </select>\n"
+            + "    <select id=\"selectLoop\" resultType=\"map\">SELECT * FROM user_info <include refid=\"loop\"/></select>\n"
+            + "    <select id=\"selectMissing\" resultType=\"map\">SELECT * FROM user_info <include refid=\"other.Mapper.x\"/></select>\n"
+            + "</mapper>\n";
+
+    @Test
+    public void testIncludedFragmentsRegisterJoinedTables(@TempDir Path dir) throws IOException {
+        Path mapper = dir.resolve("ProfileMapper.xml");
+        Files.write(mapper, MAPPER_XML.getBytes(StandardCharsets.UTF_8));
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        AutoConfigurationPackages.register(beanFactory, "com.example.sharding.entity");
+        LogicalTableRegistry registry = new LogicalTableRegistry();
+        ReflectionTestUtils.setField(registry, "beanFactory", beanFactory);
+        ReflectionTestUtils.setField(registry, "mapperLocations", new String[]{mapper.toUri().toString()});
+        registry.init();
+
+        // 片段中JOIN的表与分片表user_info在同一语句中使用，包括片段嵌套引用的表
+        assertTrue(registry.isSharded("user_info"));
+        assertTrue(registry.isSharded("user_profile"));
+        assertTrue(registry.isSharded("user_address"));
+        assertEquals(TableType.GLOBAL, registry.getTableType("sharding_config"));
+    }
+}
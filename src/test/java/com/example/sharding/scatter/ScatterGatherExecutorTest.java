@@ -0,0 +1,222 @@
+package com.example.sharding.scatter;
+
+import com.example.sharding.context.ShardingRoute;
+import com.example.sharding.datasource.DataSourceRegistry;
+import com.example.sharding.interceptor.QueryTimeoutInterceptor;
+import com.example.sharding.metadata.LogicalTableRegistry;
+import com.example.sharding.metadata.TableType;
+import com.example.sharding.schema.PhysicalTableLocator;
+import com.example.sharding.service.TableAutoCreateService;
+import com.example.sharding.strategy.ShardingStrategy;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 跨分片查询目标测试
+ */
+public class ScatterGatherExecutorTest {
+
+    private static final List<String> TABLES = Arrays.asList("order_info", "order_detail", "user_info");
+
+    private final DataSourceRegistry dataSourceRegistry = mock(DataSourceRegistry.class);
+
+    private final TableAutoCreateService tableAutoCreateService = mock(TableAutoCreateService.class);
+
+    private final ShardingStrategy shardingStrategy = mock(ShardingStrategy.class);
+
+    private ScatterGatherExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        LogicalTableRegistry logicalTableRegistry = mock(LogicalTableRegistry.class);
+        Set<String> sharded = new HashSet<>(TABLES);
+        when(logicalTableRegistry.getShardedTables()).thenReturn(sharded);
+        Map<String, TableType> all = sharded.stream()
+                .collect(Collectors.toMap(Function.identity(), table -> TableType.SHARDED));
+        when(logicalTableRegistry.getAllTables()).thenReturn(all);
+
+        PhysicalTableLocator physicalTableLocator = new PhysicalTableLocator();
+        ReflectionTestUtils.setField(physicalTableLocator, "logicalTableRegistry", logicalTableRegistry);
+        ReflectionTestUtils.setField(physicalTableLocator, "dataSourceRegistry", dataSourceRegistry);
+
+        when(dataSourceRegistry.getCatalog()).thenReturn(new LinkedHashSet<>(Arrays.asList("database-001", "database-002")));
+        when(tableAutoCreateService.getExistingTables("database-001")).thenReturn(new HashSet<>(Arrays.asList(
+                "order_info_a", "order_detail_a", "user_info_a",
+                "order_info_b", "order_detail_b",
+                "order_detail_c")));
+        when(tableAutoCreateService.getExistingTables("database-002"))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        executor = new ScatterGatherExecutor();
+        ReflectionTestUtils.setField(executor, "shardingStrategy", shardingStrategy);
+        ReflectionTestUtils.setField(executor, "logicalTableRegistry", logicalTableRegistry);
+        ReflectionTestUtils.setField(executor, "physicalTableLocator", physicalTableLocator);
+        ReflectionTestUtils.setField(executor, "dataSourceRegistry", dataSourceRegistry);
+        ReflectionTestUtils.setField(executor, "tableAutoCreateService", tableAutoCreateService);
+        ReflectionTestUtils.setField(executor, "parallelism", 4);
+        ReflectionTestUtils.setField(executor, "perShardConcurrency", 2);
+        ReflectionTestUtils.setField(executor, "timeout", 5000L);
+        ReflectionTestUtils.setField(executor, "maxPageRows", 100);
+        executor.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.destroy();
+    }
+
+    @Test
+    public void testAllTablesFromCachedTableSets() {
+        List<ShardingRoute> targets = executor.allTables(TABLES);
+
+        // 缺少user_info_b的目标被跳过，不可访问的分片不影响其他分片
+        assertEquals(1, targets.size());
+        assertEquals("database-001", targets.get(0).getDataSourceKey());
+        assertEquals("a", targets.get(0).getTableSuffix());
+        // 不查询information_schema
+        verify(dataSourceRegistry, never()).getDataSource(anyString());
+    }
+
+    @Test
+    public void testProjectTablesSkipMissingAndRecheckUncached() {
+        when(shardingStrategy.resolve("p1")).thenReturn(ShardingRoute.of("p1", "database-001", "a", TABLES));
+        when(shardingStrategy.resolve("p2")).thenReturn(ShardingRoute.of("p2", "database-001", "b", TABLES));
+        when(shardingStrategy.resolve("p3")).thenReturn(ShardingRoute.of("p3", "database-001", "a", TABLES));
+        when(shardingStrategy.resolve("p4")).thenReturn(ShardingRoute.of("p4", "database-001", "d", TABLES));
+        // 其他节点刚刚创建的表，表清单中还没有
+        when(tableAutoCreateService.isTableExists("user_info_b", "database-001")).thenReturn(true);
+
+        List<ShardingRoute> targets = executor.projectTables(Arrays.asList("p1", "p2", "p3", "p4"), TABLES);
+
+        assertEquals(Arrays.asList("a", "b"),
+                targets.stream().map(ShardingRoute::getTableSuffix).collect(Collectors.toList()));
+        verify(tableAutoCreateService, never()).isTableExists("order_info_a", "database-001");
+    }
+
+    @Test
+    public void testQueryAllCappedAtMaxRows() {
+        ReflectionTestUtils.setField(executor, "maxPageRows", 5);
+        List<ShardingRoute> targets = Arrays.asList(
+                ShardingRoute.of(null, "database-001", "a", TABLES),
+                ShardingRoute.of(null, "database-002", "a", TABLES));
+        Map<String, List<Integer>> rows = new HashMap<>();
+        rows.put("database-001:a", Arrays.asList(9, 5, 1));
+        rows.put("database-002:a", Arrays.asList(7, 2));
+        List<Integer> limits = new CopyOnWriteArrayList<>();
+
+        ScatterGatherExecutor.PageQuery<Integer> query = (sourceKey, limit, handler) -> {
+            limits.add(limit);
+            emit(rows.get(sourceKey), limit, handler);
+        };
+        assertEquals(Arrays.asList(9, 7, 5, 2, 1), executor.queryAll(targets, query, Comparator.reverseOrder()));
+        // 每张表最多读取上限+1行，用于判断是否超出上限
+        assertEquals(Arrays.asList(6, 6), limits);
+
+        rows.put("database-002:a", Arrays.asList(7, 6, 2));
+        assertThrows(IllegalArgumentException.class, () -> executor.queryAll(targets, query, Comparator.reverseOrder()));
+    }
+
+    @Test
+    public void testTimeoutCancelsWorkersAndBoundsStatements() throws Exception {
+        ReflectionTestUtils.setField(executor, "timeout", 1500L);
+        List<ShardingRoute> targets = Arrays.asList(
+                ShardingRoute.of(null, "database-001", "a", TABLES),
+                ShardingRoute.of(null, "database-002", "a", TABLES));
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicInteger statementTimeout = new AtomicInteger();
+        StatementHandler handler = mock(StatementHandler.class);
+
+        long start = System.currentTimeMillis();
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> executor.queryPage(targets, (sourceKey, rows, rowHandler) -> {
+            try {
+                // 语句超时取截止时间的剩余时间
+                Object[] args = {mock(Connection.class), null};
+                new QueryTimeoutInterceptor().intercept(new Invocation(handler,
+                        StatementHandler.class.getMethod("prepare", Connection.class, Integer.class), args));
+                statementTimeout.set((Integer) args[1]);
+                Thread.sleep(10000);
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            } catch (Throwable ex) {
+                throw new IllegalStateException(ex);
+            }
+        }, Comparator.<Integer>naturalOrder(), 0, 10));
+
+        assertTrue(e.getMessage().contains("超时"));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        assertEquals(2, statementTimeout.get());
+    }
+
+    @Test
+    public void testPageTiesAcrossTablesBrokenBySourceKey() {
+        List<ShardingRoute> targets = Arrays.asList(
+                ShardingRoute.of(null, "database-001", "a", TABLES),
+                ShardingRoute.of(null, "database-001", "b", TABLES),
+                ShardingRoute.of(null, "database-002", "a", TABLES));
+        // 各表的明细ID相同，按(值, 来源物理表)排序
+        Comparator<String[]> order = Comparator.<String[]>comparingInt(row -> Integer.parseInt(row[0]))
+                .thenComparing(row -> row[1]);
+        ScatterGatherExecutor.PageQuery<String[]> query = (sourceKey, rows, handler) -> {
+            List<String[]> table = new ArrayList<>();
+            for (int value = 1; value <= rows; value++) {
+                table.add(new String[]{String.valueOf(value), sourceKey});
+            }
+            emit(table, rows, handler);
+        };
+        List<String> expected = Arrays.asList("1:database-002:a", "2:database-001:a", "2:database-001:b");
+
+        for (int round = 0; round < 20; round++) {
+            // 目标列表的顺序不影响同分行的先后
+            List<ShardingRoute> shuffled = new ArrayList<>(targets);
+            Collections.shuffle(shuffled, new Random(round));
+            List<String[]> page = executor.queryPage(shuffled, query, order, 2, 3);
+
+            assertEquals(expected, page.stream().map(row -> row[0] + ":" + row[1]).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * 按语句的LIMIT逐行交给结果处理器，处理器停止时不再读取
+     */
+    private static <T> void emit(List<T> rows, int limit, ResultHandler<T> handler) {
+        DefaultResultContext<T> context = new DefaultResultContext<>();
+        for (T row : rows.subList(0, Math.min(limit, rows.size()))) {
+            context.nextResultObject(row);
+            handler.handleResult(context);
+            if (context.isStopped()) {
+                break;
+            }
+        }
+    }
+}
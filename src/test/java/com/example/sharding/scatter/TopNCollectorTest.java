@@ -0,0 +1,80 @@
+package com.example.sharding.scatter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 跨分片分页前N行测试
+ */
+public class TopNCollectorTest {
+
+    @Test
+    public void testKeepTopNAcrossSources() {
+        TopNCollector<Integer> collector = new TopNCollector<>(Comparator.reverseOrder(), 4);
+        List<List<Integer>> sources = Arrays.asList(
+                Arrays.asList(100, 50, 10),
+                Arrays.asList(90, 80, 70, 60, 5),
+                Arrays.asList(20, 1));
+
+        int read = 0;
+        for (List<Integer> source : sources) {
+            for (Integer row : source) {
+                read++;
+                if (!collector.offer(row)) {
+                    // 按序返回的表，一行进不了前N，后续行也进不了
+                    break;
+                }
+            }
+        }
+
+        assertEquals(Arrays.asList(100, 90, 80, 70), collector.toList(0));
+        assertEquals(Arrays.asList(80, 70), collector.toList(2));
+        // 第二张表读到60停止，第三张表读到20停止，不读取5和1
+        assertEquals(8, read);
+    }
+
+    @Test
+    public void testOffsetBeyondRows() {
+        TopNCollector<Integer> collector = new TopNCollector<>(Comparator.naturalOrder(), 10);
+        collector.offer(3);
+        collector.offer(1);
+        collector.offer(2);
+
+        assertEquals(Arrays.asList(1, 2, 3), collector.toList(0));
+        assertTrue(collector.toList(5).isEmpty());
+    }
+
+    @Test
+    public void testRejectEqualToLast() {
+        TopNCollector<Integer> collector = new TopNCollector<>(Comparator.naturalOrder(), 2);
+        assertTrue(collector.offer(1));
+        assertTrue(collector.offer(2));
+        assertFalse(collector.offer(2));
+        assertFalse(collector.offer(3));
+        assertTrue(collector.offer(0));
+        assertEquals(Arrays.asList(0, 1), collector.toList(0));
+    }
+
+    @Test
+    public void testTiesResolvedByTotalOrderRegardlessOfArrival() {
+        Comparator<int[]> order = Comparator.<int[]>comparingInt(row -> row[0]).thenComparingInt(row -> row[1]);
+        TopNCollector<int[]> first = new TopNCollector<>(order, 2);
+        TopNCollector<int[]> second = new TopNCollector<>(order, 2);
+        int[][] rows = {{1, 0}, {2, 0}, {1, 1}, {2, 1}};
+
+        for (int[] row : rows) {
+            first.offer(row);
+        }
+        for (int i = rows.length - 1; i >= 0; i--) {
+            second.offer(rows[i]);
+        }
+
+        assertArrayEquals(new int[]{1, 1}, first.toList(1).get(0));
+        assertArrayEquals(new int[]{1, 1}, second.toList(1).get(0));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.sharding.schema;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分片表结构漂移检查测试
+ */
+public class SchemaDriftDetectorTest {
+
+    @Test
+    public void testIdenticalSchemas() {
+        assertTrue(SchemaDriftDetector.diff(orderInfo(), orderInfo(), "order_info_001", true).isEmpty());
+    }
+
+    @Test
+    public void testMissingIndexDdl() {
+        SchemaDriftDetector.TableSchema actual = orderInfo();
+        actual.indexes.remove("idx_project_id");
+        actual.indexes.remove("uk_order_no");
+
+        Map<String, Object> drift = SchemaDriftDetector.diff(orderInfo(), actual, "order_info_001", true);
+
+        assertEquals(Arrays.asList("idx_project_id (`project_id`)", "uk_order_no UNIQUE (`order_no`)"),
+                drift.get("missingIndexes"));
+        assertEquals(Arrays.asList(
+                "ALTER TABLE `order_info_001` ADD INDEX `idx_project_id` (`project_id`)",
+                "ALTER TABLE `order_info_001` ADD UNIQUE INDEX `uk_order_no` (`order_no`)"), drift.get("ddl"));
+        assertFalse(drift.containsKey("missingColumns"));
+    }
+
+    @Test
+    public void testColumnAndIndexDifferences() {
+        SchemaDriftDetector.TableSchema actual = orderInfo();
+        actual.columns.remove("remark");
+        actual.columns.put("status", "tinyint NULL");
+        actual.columns.put("legacy_flag", "int NULL");
+        actual.indexes.get("idx_project_id").columns.add("`status`");
+        actual.indexes.put("idx_legacy", index(false, "`legacy_flag`"));
+
+        Map<String, Object> drift = SchemaDriftDetector.diff(orderInfo(), actual, "order_info_001", false);
+
+        assertEquals(Collections.singletonList("remark varchar(255) NULL"), drift.get("missingColumns"));
+        assertEquals(Collections.singletonList("legacy_flag"), drift.get("extraColumns"));
+        assertEquals(Collections.singletonList("status: tinyint NULL -> tinyint NOT NULL"), drift.get("changedColumns"));
+        assertEquals(Collections.singletonList("idx_project_id: (`project_id`, `status`) -> (`project_id`)"),
+                drift.get("changedIndexes"));
+        assertEquals(Collections.singletonList("idx_legacy"), drift.get("extraIndexes"));
+        assertFalse(drift.containsKey("ddl"));
+    }
+
+    private static SchemaDriftDetector.TableSchema orderInfo() {
+        SchemaDriftDetector.TableSchema schema = new SchemaDriftDetector.TableSchema();
+        schema.columns.put("id", "bigint NOT NULL");
+        schema.columns.put("order_no", "varchar(64) NOT NULL");
+        schema.columns.put("project_id", "varchar(64) NOT NULL");
+        schema.columns.put("status", "tinyint NOT NULL");
+        schema.columns.put("remark", "varchar(255) NULL");
+        schema.indexes.put("PRIMARY", index(true, "`id`"));
+        schema.indexes.put("idx_project_id", index(false, "`project_id`"));
+        schema.indexes.put("uk_order_no", index(true, "`order_no`"));
+        return schema;
+    }
+
+    private static SchemaDriftDetector.Index index(boolean unique, String... columns) {
+        SchemaDriftDetector.Index index = new SchemaDriftDetector.Index(unique);
+        index.columns.addAll(Arrays.asList(columns));
+        return index;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.sharding.service.impl;
+
+import com.example.sharding.context.ShardingRoute;
+import com.example.sharding.datasource.DataSourceRegistry;
+import com.example.sharding.metadata.LogicalTableRegistry;
+import com.example.sharding.service.TableAutoCreateService;
+import com.example.sharding.strategy.ShardingStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+/**
+ * 表自动创建服务测试
+ */
+public class TableAutoCreateServiceImplTest {
+
+    private final DataSource routingDataSource = mock(DataSource.class);
+
+    @AfterEach
+    public void clearTransaction() {
+        if (TransactionSynchronizationManager.hasResource(routingDataSource)) {
+            TransactionSynchronizationManager.unbindResource(routingDataSource);
+        }
+    }
+
+    @Test
+    public void testTemplateReadOutsideCallerTransaction() throws Exception {
+        // 调用方事务已在路由数据源上绑定了分片连接
+        Connection transactionConnection = mock(Connection.class);
+        TransactionSynchronizationManager.bindResource(routingDataSource, new ConnectionHolder(transactionConnection));
+
+        Connection templateConnection = mock(Connection.class);
+        Statement templateStatement = mock(Statement.class);
+        ResultSet templateResult = mock(ResultSet.class);
+        when(templateConnection.createStatement()).thenReturn(templateStatement);
+        when(templateStatement.executeQuery("SHOW CREATE TABLE `order_info`")).thenReturn(templateResult);
+        when(templateResult.next()).thenReturn(true);
+        when(templateResult.getString(2)).thenReturn("CREATE TABLE `order_info` (`id` bigint)");
+        DataSource defaultDataSource = mock(DataSource.class);
+        when(defaultDataSource.getConnection()).thenReturn(templateConnection);
+
+        Connection shardConnection = mock(Connection.class);
+        PreparedStatement lock = preparedStatement(1);
+        PreparedStatement exists = preparedStatement(0);
+        PreparedStatement release = preparedStatement(1);
+        Statement ddl = mock(Statement.class);
+        when(shardConnection.prepareStatement(contains("GET_LOCK"))).thenReturn(lock);
+        when(shardConnection.prepareStatement(contains("information_schema"))).thenReturn(exists);
+        when(shardConnection.prepareStatement(contains("RELEASE_LOCK"))).thenReturn(release);
+        when(shardConnection.createStatement()).thenReturn(ddl);
+        DataSource shardDataSource = mock(DataSource.class);
+        when(shardDataSource.getConnection()).thenReturn(shardConnection);
+
+        DataSourceRegistry registry = mock(DataSourceRegistry.class);
+        when(registry.getDataSource("default")).thenReturn(defaultDataSource);
+        when(registry.getDataSource("database-001")).thenReturn(shardDataSource);
+
+        TableAutoCreateServiceImpl service = new TableAutoCreateServiceImpl();
+        ReflectionTestUtils.setField(service, "dataSourceRegistry", registry);
+        ReflectionTestUtils.setField(service, "lockTimeout", 30L);
+
+        assertTrue(service.createTable("order_info", "order_info_001", "database-001"));
+
+        verify(ddl).execute("CREATE TABLE IF NOT EXISTS `order_info_001` (`id` bigint)");
+        verify(templateConnection).close();
+        verify(shardConnection).close();
+        verifyNoInteractions(transactionConnection, routingDataSource);
+    }
+
+    @Test
+    public void testLockNameWithinMysqlLimit() {
+        assertEquals("sharding:ddl:database-001.order_info_001",
+                TableAutoCreateServiceImpl.lockName("database-001", "order_info_001"));
+        String longName = TableAutoCreateServiceImpl.lockName("database-001", repeat("t", 80));
+        assertTrue(longName.length() <= 64);
+        assertNotEquals(longName, TableAutoCreateServiceImpl.lockName("database-002", repeat("t", 80)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testProvisionStatusDroppedWhenReady() throws Exception {
+        ShardingStrategy shardingStrategy = mock(ShardingStrategy.class);
+        when(shardingStrategy.resolve("project_001"))
+                .thenReturn(ShardingRoute.of("project_001", "database-001", "001", Arrays.asList("order_info", "user_info")));
+        LogicalTableRegistry logicalTableRegistry = mock(LogicalTableRegistry.class);
+        when(logicalTableRegistry.getShardedTables()).thenReturn(new LinkedHashSet<>(Arrays.asList("order_info", "user_info")));
+
+        TableAutoCreateServiceImpl service = new TableAutoCreateServiceImpl();
+        ReflectionTestUtils.setField(service, "shardingStrategy", shardingStrategy);
+        ReflectionTestUtils.setField(service, "logicalTableRegistry", logicalTableRegistry);
+        ReflectionTestUtils.setField(service, "autoCreateTableEnabled", true);
+        Map<String, Set<String>> existingTables = (Map<String, Set<String>>) ReflectionTestUtils.getField(service, "existingTables");
+        existingTables.put("database-001", new HashSet<>(Arrays.asList("order_info_001", "user_info_001")));
+        Map<String, ?> provisionStatus = (Map<String, ?>) ReflectionTestUtils.getField(service, "provisionStatus");
+        service.init();
+        try {
+            service.provisionProject("project_001");
+            for (int i = 0; i < 100 && !provisionStatus.isEmpty(); i++) {
+                Thread.sleep(10);
+            }
+
+            // 全部建成后不再保留状态，按表清单返回
+            assertTrue(provisionStatus.isEmpty());
+            assertEquals(TableAutoCreateService.TableStatus.READY, service.getProvisionStatus("project_001").get("order_info"));
+            assertEquals(2, service.getProvisionStatus("project_001").size());
+        } finally {
+            service.destroy();
+        }
+    }
+
+    private static PreparedStatement preparedStatement(int value) throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(statement.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getInt(1)).thenReturn(value);
+        return statement;
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.sharding.strategy;
+
+import com.example.sharding.config.ShardingAlgorithmProperties;
+import com.example.sharding.context.ShardingRoute;
+import com.example.sharding.entity.ShardingConfig;
+import com.example.sharding.metadata.LogicalTableRegistry;
+import com.example.sharding.service.ShardingConfigService;
+import com.example.sharding.strategy.algorithm.ModShardingAlgorithm;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 项目分片策略测试
+ */
+public class ProjectShardingStrategyTest {
+
+    private final ShardingConfigService shardingConfigService = mock(ShardingConfigService.class);
+
+    private ProjectShardingStrategy strategy;
+
+    @BeforeEach
+    public void setUp() {
+        LogicalTableRegistry logicalTableRegistry = mock(LogicalTableRegistry.class);
+        when(logicalTableRegistry.getShardedTables()).thenReturn(new HashSet<>(Arrays.asList("order_info", "user_info")));
+
+        strategy = new ProjectShardingStrategy();
+        ReflectionTestUtils.setField(strategy, "shardingConfigService", shardingConfigService);
+        ReflectionTestUtils.setField(strategy, "logicalTableRegistry", logicalTableRegistry);
+        ReflectionTestUtils.setField(strategy, "shardingAlgorithm", new ModShardingAlgorithm(Arrays.asList("001", "002")));
+        ReflectionTestUtils.setField(strategy, "shardingAlgorithmProperties", new ShardingAlgorithmProperties());
+        ReflectionTestUtils.setField(strategy, "cacheExpireTime", 300L);
+        ReflectionTestUtils.setField(strategy, "refreshRatio", 0.8);
+        ReflectionTestUtils.setField(strategy, "negativeExpireTime", 30L);
+        ReflectionTestUtils.setField(strategy, "maxSize", 100);
+        strategy.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        strategy.destroy();
+    }
+
+    @Test
+    public void testOverridesResolvedWithoutConfigLookup() {
+        ShardingConfig override = new ShardingConfig().setProjectId("project_001").setDatabaseSuffix("003").setTableSuffix("001");
+        strategy.loadOverrides(Collections.singletonList(override));
+
+        ShardingRoute explicit = strategy.resolve("project_001");
+        assertEquals("database-003", explicit.getDataSourceKey());
+        assertEquals("order_info_001", explicit.getActualTableName("order_info"));
+
+        ShardingRoute computed = strategy.resolve("project_777");
+        assertTrue(computed.getDataSourceKey().startsWith("database-00"));
+        assertEquals("order_info_project_777", computed.getActualTableName("order_info"));
+
+        verify(shardingConfigService, never()).getConfigByProjectId(anyString());
+    }
+
+    @Test
+    public void testOverrideChangesApplied() {
+        strategy.loadOverrides(Collections.emptyList());
+        strategy.resolve("project_002");
+
+        ShardingConfig config = new ShardingConfig().setProjectId("project_002").setDatabaseSuffix("003").setTableSuffix("002");
+        strategy.applyConfigChange(config);
+        assertEquals("database-003", strategy.resolve("project_002").getDataSourceKey());
+
+        strategy.applyConfigChange(config.setDeleted(1));
+        assertNotEquals("order_info_002", strategy.resolve("project_002").getActualTableName("order_info"));
+        verify(shardingConfigService, never()).getConfigByProjectId(anyString());
+    }
+
+    @Test
+    public void testRejectProjectIdOutsideSuffixCharset() {
+        strategy.loadOverrides(Collections.singletonList(
+                new ShardingConfig().setProjectId("Proj-1").setDatabaseSuffix("001").setTableSuffix("proj_1_upper")));
+
+        assertEquals("order_info_proj_1", strategy.resolve("proj_1").getActualTableName("order_info"));
+        assertEquals("order_info_proj_1_upper", strategy.resolve("Proj-1").getActualTableName("order_info"));
+        assertThrows(IllegalArgumentException.class, () -> strategy.resolve("PROJ-1"));
+        assertThrows(IllegalArgumentException.class, () -> strategy.resolve("proj-1"));
+    }
+}
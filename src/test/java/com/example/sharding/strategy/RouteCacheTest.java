@@ -0,0 +1,114 @@
+package com.example.sharding.strategy;
+
+import com.example.sharding.context.ShardingRoute;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 路由缓存测试
+ */
+public class RouteCacheTest {
+
+    private static ShardingRoute route(String projectId) {
+        return ShardingRoute.of(projectId, "database-001", "001", Collections.singleton("user_info"));
+    }
+
+    @Test
+    public void testHitAndNegativeCaching() {
+        AtomicInteger loads = new AtomicInteger();
+        RouteCache cache = new RouteCache(projectId -> {
+            loads.incrementAndGet();
+            return "project_001".equals(projectId) ? route(projectId) : null;
+        }, Runnable::run, 300, 0.8, 30, 100);
+
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(cache.get("project_001"));
+            assertNull(cache.get("unknown"));
+        }
+        assertEquals(2, loads.get());
+
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(9L, stats.get("hits"));
+        assertEquals(9L, stats.get("negativeHits"));
+        assertEquals(2L, stats.get("misses"));
+    }
+
+    @Test
+    public void testExpireAndRefreshAhead() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        RouteCache cache = new RouteCache(projectId -> {
+            loads.incrementAndGet();
+            return route(projectId);
+        }, Runnable::run, 1, 0.0, 1, 100);
+
+        cache.get("project_001");
+        Thread.sleep(5);
+        // 超过刷新阈值，命中后同步执行器立即刷新
+        assertNotNull(cache.get("project_001"));
+        assertEquals(2, loads.get());
+        assertEquals(1L, cache.getStats().get("refreshes"));
+
+        cache.invalidate("project_001");
+        cache.get("project_001");
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testServeStaleOnLoadFailure() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        RouteCache cache = new RouteCache(projectId -> {
+            if (loads.incrementAndGet() > 1) {
+                throw new IllegalStateException("config db down");
+            }
+            return route(projectId);
+        }, Runnable::run, 0, 1.0, 0, 100);
+
+        ShardingRoute first = cache.get("project_001");
+        Thread.sleep(5);
+        assertSame(first, cache.get("project_001"));
+        assertThrows(IllegalStateException.class, () -> cache.get("project_002"));
+    }
+
+    @Test
+    public void testBounded() {
+        RouteCache cache = new RouteCache(RouteCacheTest::route, Runnable::run, 300, 0.8, 30, 100);
+        for (int i = 0; i < 1000; i++) {
+            cache.get("project_" + i);
+        }
+        assertTrue((Integer) cache.getStats().get("size") <= 100);
+    }
+
+    @Test
+    public void testConcurrentMissLoadsOnce() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        RouteCache cache = new RouteCache(projectId -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }, Runnable::run, 300, 0.8, 30, 100);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            pool.execute(() -> cache.get("unknown"));
+        }
+        Thread.sleep(100);
+        release.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.sharding.strategy;
+
+import com.example.sharding.context.ShardingRoute;
+import com.example.sharding.datasource.DataSourceRegistry;
+import com.example.sharding.entity.ShardingConfig;
+import com.example.sharding.schema.SchemaMigrationEngine;
+import com.example.sharding.service.ShardingConfigService;
+import com.example.sharding.service.TableAutoCreateService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 分片配置变更监听测试
+ */
+public class ShardingConfigWatcherTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0, 0);
+
+    private final ShardingConfigService shardingConfigService = mock(ShardingConfigService.class);
+
+    private final ProjectShardingStrategy projectShardingStrategy = mock(ProjectShardingStrategy.class);
+
+    private final DataSourceRegistry dataSourceRegistry = mock(DataSourceRegistry.class);
+
+    private ShardingConfigWatcher watcher;
+
+    @BeforeEach
+    public void setUp() {
+        watcher = new ShardingConfigWatcher();
+        ReflectionTestUtils.setField(watcher, "shardingConfigService", shardingConfigService);
+        ReflectionTestUtils.setField(watcher, "projectShardingStrategy", projectShardingStrategy);
+        ReflectionTestUtils.setField(watcher, "schemaMigrationEngine", mock(SchemaMigrationEngine.class));
+        ReflectionTestUtils.setField(watcher, "tableAutoCreateService", mock(TableAutoCreateService.class));
+        ReflectionTestUtils.setField(watcher, "dataSourceRegistry", dataSourceRegistry);
+        ReflectionTestUtils.setField(watcher, "lookback", 5L);
+        when(projectShardingStrategy.buildRoute(any())).thenAnswer(invocation -> {
+            ShardingConfig config = invocation.getArgument(0);
+            return ShardingRoute.of(config.getProjectId(), "database-" + config.getDatabaseSuffix(), config.getTableSuffix(),
+                    Collections.singleton("user_info"));
+        });
+        when(dataSourceRegistry.refreshIfAbsent(any())).thenReturn(true);
+
+        when(shardingConfigService.getMaxUpdateTime()).thenReturn(NOW.minusSeconds(1));
+        // 启动轮询只确定起始水位
+        watcher.poll();
+    }
+
+    @Test
+    public void testRecreateWinsOverDeleteReadInAdverseOrder() {
+        // 同一秒内删除旧配置并重建，重建记录先于删除记录读到
+        ShardingConfig recreated = config(2L, "p1", "002", 0);
+        ShardingConfig deleted = config(1L, "p1", "001", 1);
+        when(shardingConfigService.listChangedSince(any())).thenReturn(Arrays.asList(recreated, deleted));
+
+        watcher.poll();
+
+        ArgumentCaptor<ShardingConfig> applied = ArgumentCaptor.forClass(ShardingConfig.class);
+        verify(projectShardingStrategy).applyConfigChange(applied.capture());
+        assertSame(recreated, applied.getValue());
+    }
+
+    @Test
+    public void testLastDeleteAppliedWhenNoLiveRow() {
+        ShardingConfig deletedFirst = config(1L, "p1", "001", 1);
+        ShardingConfig deletedLast = config(2L, "p1", "002", 1);
+        ShardingConfig other = config(3L, "p2", "003", 0);
+        when(shardingConfigService.listChangedSince(any())).thenReturn(Arrays.asList(deletedFirst, other, deletedLast));
+
+        watcher.poll();
+
+        ArgumentCaptor<ShardingConfig> applied = ArgumentCaptor.forClass(ShardingConfig.class);
+        verify(projectShardingStrategy, times(2)).applyConfigChange(applied.capture());
+        List<ShardingConfig> values = applied.getAllValues();
+        assertSame(deletedLast, values.get(0));
+        assertSame(other, values.get(1));
+    }
+
+    @Test
+    public void testRefreshCatalogForChangedRoutes() {
+        ShardingConfig moved = config(1L, "p1", "001", 0).setDatabaseSuffix("009");
+        ShardingConfig deleted = config(2L, "p2", "002", 1).setDatabaseSuffix("010");
+        when(shardingConfigService.listChangedSince(any())).thenReturn(Arrays.asList(moved, deleted));
+
+        watcher.poll();
+
+        // 只检查仍然有效的路由，删除的配置不会再路由到原数据源
+        verify(dataSourceRegistry).refreshIfAbsent("database-009");
+        verify(dataSourceRegistry, never()).refreshIfAbsent("database-010");
+        verify(projectShardingStrategy, times(2)).applyConfigChange(any());
+    }
+
+    private static ShardingConfig config(Long id, String projectId, String tableSuffix, int deleted) {
+        return new ShardingConfig().setId(id).setProjectId(projectId).setDatabaseSuffix("001")
+                .setTableSuffix(tableSuffix).setDeleted(deleted).setUpdateTime(NOW);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.sharding.strategy.algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分库算法测试
+ */
+public class ShardingAlgorithmTest {
+
+    private static final List<String> DATABASES = Arrays.asList("001", "002", "003");
+
+    @Test
+    public void testModIsStable() {
+        ModShardingAlgorithm algorithm = new ModShardingAlgorithm(DATABASES);
+        for (int i = 0; i < 100; i++) {
+            String projectId = "project_" + i;
+            String suffix = algorithm.databaseSuffix(projectId);
+            assertTrue(DATABASES.contains(suffix));
+            assertEquals(suffix, algorithm.databaseSuffix(projectId));
+        }
+    }
+
+    @Test
+    public void testRange() {
+        Map<String, String> ranges = new HashMap<>();
+        ranges.put("", "001");
+        ranges.put("project_500", "002");
+        RangeShardingAlgorithm algorithm = new RangeShardingAlgorithm(ranges);
+
+        assertEquals("001", algorithm.databaseSuffix("project_001"));
+        assertEquals("002", algorithm.databaseSuffix("project_500"));
+        assertEquals("002", algorithm.databaseSuffix("project_999"));
+    }
+
+    @Test
+    public void testRangeRequiresFirstRange() {
+        Map<String, String> ranges = new HashMap<>();
+        ranges.put("project_500", "002");
+        assertThrows(IllegalArgumentException.class, () -> new RangeShardingAlgorithm(ranges));
+    }
+
+    @Test
+    public void testConsistentHashMovesOnlyToNewDatabase() {
+        ConsistentHashShardingAlgorithm before = new ConsistentHashShardingAlgorithm(DATABASES, 160);
+        ConsistentHashShardingAlgorithm after = new ConsistentHashShardingAlgorithm(
+                Arrays.asList("001", "002", "003", "004"), 160);
+
+        int moved = 0;
+        for (int i = 0; i < 1000; i++) {
+            String projectId = "project_" + i;
+            String oldSuffix = before.databaseSuffix(projectId);
+            String newSuffix = after.databaseSuffix(projectId);
+            if (!oldSuffix.equals(newSuffix)) {
+                assertEquals("004", newSuffix);
+                moved++;
+            }
+        }
+        // 新增一个库时大约四分之一的项目迁移
+        assertTrue(moved > 150 && moved < 350, "moved=" + moved);
+    }
+}